@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmStorageBenchmark {
+    @Param({"db", "memory"})
+    String storage;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    private StorageFixture fixture;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fixture = StorageFixture.create(storage, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return fixture.filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return fixture.filmStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return fixture.filmStorage.getFilmById(nextFilmId());
+    }
+
+    // A like and its removal, so that every call writes and the data stays the same between iterations
+    @Benchmark
+    public boolean addLike() {
+        int filmId = nextFilmId();
+        fixture.filmStorage.addLike(filmId, fixture.idleUserId);
+        return fixture.filmStorage.deleteLike(filmId, fixture.idleUserId);
+    }
+
+    private int nextFilmId() {
+        next = (next + 1) % fixture.filmIds.length;
+        return fixture.filmIds[next];
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friend suggestions of the database storage on the power-law friendship graph of {@link DatasetGenerator}:
+ * 100000 users with 20 friend requests each on average, about 2 million FRIENDS rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FriendSuggestionsBenchmark {
+    @Param({"100000"})
+    int users;
+
+    @Param({"100", "1000"})
+    int maxFanout;
+
+    private StorageFixture fixture;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fixture = StorageFixture.dataset(DatasetGenerator.Settings.builder()
+                .users(users)
+                .films(users / 10)
+                .likesPerUser(0)
+                .friendsPerUser(20)
+                .build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<User> getFriendSuggestions() {
+        next = (next + 1) % fixture.userIds.length;
+        return fixture.userStorage.getFriendSuggestions(fixture.userIds[next], maxFanout, 10);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Film recommendations on the Zipf distributed likes of {@link DatasetGenerator}: 100000 users with
+ * 20 likes each on average over 10000 films, about 2 million LIKES rows. The last value of
+ * coLikersPerFilm is effectively no cap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RecommendationsBenchmark {
+    @Param({"100000"})
+    int users;
+
+    @Param({"100", "1000", "2147483647"})
+    int coLikersPerFilm;
+
+    private StorageFixture fixture;
+    private FilmRecommender filmRecommender;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fixture = StorageFixture.dataset(DatasetGenerator.Settings.builder()
+                .users(users)
+                .films(users / 10)
+                .likesPerUser(20)
+                .friendsPerUser(0)
+                .build());
+        filmRecommender = new FilmRecommender(fixture.filmStorage, 20, coLikersPerFilm, new SimpleMeterRegistry());
+        filmRecommender.rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<Integer> recommend() {
+        next = (next + 1) % fixture.userIds.length;
+        return filmRecommender.recommend(fixture.userIds[next], 10);
+    }
+}
@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.impl.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.db.LikesCounter;
+import ru.yandex.practicum.filmorate.storage.impl.db.RatingsDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.db.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.mem.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.mem.InMemoryUserStorage;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Film and user storages wired by hand, without a Spring context, and filled with the same
+ * pseudo-random data for a given size: every user likes and befriends {@link #LINKS_PER_USER} others.
+ * "db" is FilmDbStorage/UserDbStorage on a migrated in-memory H2 database, "memory" the in-memory storages.
+ * {@link #dataset} puts the database storages on the skewed data of {@link DatasetGenerator} instead.
+ */
+final class StorageFixture implements AutoCloseable {
+    static final int LINKS_PER_USER = 10;
+    private static final long SEED = 42;
+
+    final FilmStorage filmStorage;
+    final UserStorage userStorage;
+    final int[] filmIds;
+    final int[] userIds;
+    // Takes part in no likes and no friendships, so write benchmarks always change something
+    final int idleUserId;
+    private final HikariDataSource dataSource;
+
+    private StorageFixture(FilmStorage filmStorage, UserStorage userStorage, HikariDataSource dataSource, int size) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.dataSource = dataSource;
+        Random random = new Random(SEED);
+
+        filmIds = filmStorage.createFilms(films(size, random)).stream().mapToInt(Film::getId).toArray();
+        userIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = userStorage.createUser(user(i)).getId();
+        }
+        idleUserId = userStorage.createUser(user(size)).getId();
+
+        List<Friendship> friendships = new ArrayList<>();
+        for (int userId : userIds) {
+            for (int i = 0; i < LINKS_PER_USER; i++) {
+                filmStorage.addLike(filmIds[random.nextInt(size)], userId);
+                int friendId = userIds[random.nextInt(size)];
+                if (friendId != userId) friendships.add(Friendship.builder().userId(userId).friendId(friendId).build());
+            }
+        }
+        userStorage.addFriends(friendships);
+    }
+
+    private StorageFixture(FilmStorage filmStorage, UserStorage userStorage, HikariDataSource dataSource,
+                           DatasetGenerator.Summary dataset) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.dataSource = dataSource;
+        filmIds = dataset.getFilmIds();
+        userIds = dataset.getUserIds();
+        idleUserId = userStorage.createUser(user(userIds.length)).getId();
+    }
+
+    static StorageFixture create(String storage, int size) {
+        switch (storage) {
+            case "db":
+                return database(size);
+            case "memory":
+                InMemoryUserStorage userStorage = new InMemoryUserStorage();
+                return new StorageFixture(new InMemoryFilmStorage(userStorage), userStorage, null, size);
+            default:
+                throw new IllegalArgumentException("Unknown storage " + storage);
+        }
+    }
+
+    static StorageFixture dataset(DatasetGenerator.Settings settings) {
+        HikariDataSource dataSource = migratedDataSource();
+        try {
+            DatasetGenerator.Summary dataset = new DatasetGenerator(dataSource, settings).generate();
+            UserDbStorage userStorage = userStorage(dataSource);
+            return new StorageFixture(filmStorage(dataSource, userStorage), userStorage, dataSource, dataset);
+        } catch (SQLException e) {
+            dataSource.close();
+            throw new IllegalStateException("Dataset generation failed", e);
+        }
+    }
+
+    private static StorageFixture database(int size) {
+        HikariDataSource dataSource = migratedDataSource();
+        UserDbStorage userStorage = userStorage(dataSource);
+        return new StorageFixture(filmStorage(dataSource, userStorage), userStorage, dataSource, size);
+    }
+
+    private static HikariDataSource migratedDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return dataSource;
+    }
+
+    private static UserDbStorage userStorage(HikariDataSource dataSource) {
+        return new UserDbStorage(new JdbcTemplate(dataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    private static FilmDbStorage filmStorage(HikariDataSource dataSource, UserDbStorage userStorage) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        GenresDbStorage genresStorage = new GenresDbStorage(jdbcTemplate);
+        RatingsDbStorage ratingStorage = new RatingsDbStorage(jdbcTemplate);
+        genresStorage.refresh();
+        ratingStorage.refresh();
+        return new FilmDbStorage(jdbcTemplate, userStorage, genresStorage, ratingStorage,
+                new LikesCounter(jdbcTemplate, transactionTemplate, false));
+    }
+
+    private static List<Film> films(int count, Random random) {
+        List<Film> films = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Genre> genres = new ArrayList<>();
+            genres.add(Genre.builder().id(1 + random.nextInt(6)).build());
+            films.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Description of film " + i)
+                    .releaseDate(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)))
+                    .duration(60 + random.nextInt(120))
+                    .mpa(Rating.builder().id(1 + random.nextInt(5)).build())
+                    .genres(genres)
+                    .build());
+        }
+        return films;
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .name("User " + i)
+                .login("login" + i)
+                .email("user" + i + "@email.com")
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(i % 10_000))
+                .build();
+    }
+
+    @Override
+    public void close() {
+        if (dataSource != null) dataSource.close();
+    }
+}
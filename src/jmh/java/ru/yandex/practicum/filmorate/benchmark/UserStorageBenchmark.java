@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserStorageBenchmark {
+    @Param({"db", "memory"})
+    String storage;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    private StorageFixture fixture;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fixture = StorageFixture.create(storage, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        int userId = nextUserId();
+        return fixture.userStorage.getCommonFriends(userId, nextUserId());
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return fixture.userStorage.getFriends(nextUserId());
+    }
+
+    private int nextUserId() {
+        next = (next + 1) % fixture.userIds.length;
+        return fixture.userIds[next];
+    }
+}
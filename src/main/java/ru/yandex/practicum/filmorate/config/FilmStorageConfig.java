@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.cache.CachingFilmStorage;
+
+@Configuration
+@Slf4j
+public class FilmStorageConfig {
+
+    @Bean("filmStorage")
+    public FilmStorage filmStorage(@Qualifier("filmDbStorage") FilmStorage filmDbStorage,
+                                   @Value("${filmorate.film-cache.enabled:false}") boolean cacheEnabled,
+                                   @Value("${filmorate.film-cache.max-size:10000}") int maxSize,
+                                   MeterRegistry meterRegistry) {
+        if (!cacheEnabled) return filmDbStorage;
+        log.info("Film cache enabled, max size {}", maxSize);
+        CachingFilmStorage cachingFilmStorage = new CachingFilmStorage(filmDbStorage, maxSize);
+        cachingFilmStorage.bindTo(meterRegistry);
+        return cachingFilmStorage;
+    }
+}
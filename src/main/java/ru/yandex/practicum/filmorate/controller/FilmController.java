@@ -1,10 +1,18 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.utility.ChangeResponses;
+import ru.yandex.practicum.filmorate.utility.LogSummaries;
+import ru.yandex.practicum.filmorate.utility.NdjsonStreams;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -15,34 +23,63 @@ import java.util.List;
 @Slf4j
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     public List<Film> getFilms() {
         log.info("GET request for all films received");
         List<Film> response = filmService.getFilms();
-        log.info("Number of films: {}", filmService.getFilms().size());
-        log.info("All films: {}", response);
+        log.info("Number of films: {}", response.size());
+        log.debug("All films: {}", response);
         return response;
     }
 
+    @GetMapping(params = "limit")
+    public CursorPage<Film> getFilmsPage(@RequestParam(defaultValue = "0", required = false) int after,
+                                         @RequestParam int limit) {
+        log.info("GET request received: {} films after id {}", limit, after);
+        CursorPage<Film> response = filmService.getFilms(after, limit);
+        log.info("Films page size: {}, next: {}", response.getItems().size(), response.getNext());
+        return response;
+    }
+
+    @GetMapping(produces = NdjsonStreams.MEDIA_TYPE)
+    public StreamingResponseBody streamFilms() {
+        log.info("GET request for all films received, streaming");
+        return NdjsonStreams.of(objectMapper, filmService::forEachFilm);
+    }
+
     @PostMapping
     public Film createFilm(@NotNull @RequestBody @Valid Film film) {
-        log.info("POST request received: {}", film);
+        log.info("POST request received: film \"{}\"", film.getName());
+        log.debug("Film to add: {}", film);
         Film response = filmService.createFilm(film);
-        log.info("Added film: {}", response.toString());
+        log.info("Added film with id \"{}\"", response.getId());
+        log.debug("Added film: {}", response);
+        return response;
+    }
+
+    @PostMapping("/batch")
+    public BatchResult<Film> createFilms(@NotNull @RequestBody List<Film> films) {
+        log.info("POST request received: batch of {} films", films.size());
+        BatchResult<Film> response = filmService.createFilms(films);
+        log.info("Added {} films, rejected {}", response.getItems().size(), response.getErrors().size());
         return response;
     }
 
     @PutMapping
     public Film updateFilm(@NotNull @RequestBody @Valid Film film) {
-        log.info("PUT request received: {}", film);
+        log.info("PUT request received: film with id \"{}\"", film.getId());
+        log.debug("Film to update: {}", film);
         Film response = filmService.updateFilm(film);
-        log.info("Updated film: {}", response.toString());
+        log.info("Updated film with id \"{}\"", response.getId());
+        log.debug("Updated film: {}", response);
         return response;
     }
 
@@ -50,33 +87,47 @@ public class FilmController {
     public Film getFilmById(@PathVariable("id") int filmId) {
         log.info("GET request received: film with id \"{}\"", filmId);
         Film response = filmService.getFilmById(filmId);
-        log.info("Film with id \"{}\" : {}", filmId, response.toString());
+        log.debug("Film with id \"{}\" : {}", filmId, response);
         return response;
     }
 
     @PutMapping("{id}/like/{userId}")
-    public void addLike(@PathVariable("id") int filmId,
-                        @PathVariable("userId") int userId) {
+    public ResponseEntity<Void> addLike(@PathVariable("id") int filmId,
+                                        @PathVariable("userId") int userId) {
         log.info("PUT request received: user id \"{}\" likes film id \"{}\"", userId, filmId);
-        filmService.addLike(filmId, userId);
-        log.info("Film \"{}\" added like from user \"{}\"", filmId, userId);
+        boolean added = filmService.addLike(filmId, userId);
+        log.info("Film \"{}\" like from user \"{}\" added: {}", filmId, userId, added);
+        return ChangeResponses.of(added);
     }
 
     @DeleteMapping("{id}/like/{userId}")
-    public void deleteLike(@PathVariable("id") int filmId,
-                           @PathVariable("userId") int userId) {
+    public ResponseEntity<Void> deleteLike(@PathVariable("id") int filmId,
+                                           @PathVariable("userId") int userId) {
         log.info("DELETE request received: user id \"{}\" deletes like from film id \"{}\"", userId, filmId);
-        filmService.deleteLike(filmId, userId);
-        log.info("Film \"{}\" deleted like from user \"{}\"", filmId, userId);
+        boolean deleted = filmService.deleteLike(filmId, userId);
+        log.info("Film \"{}\" like from user \"{}\" deleted: {}", filmId, userId, deleted);
+        return ChangeResponses.of(deleted);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String query,
+                                  @RequestParam(defaultValue = "title,description", required = false) List<String> by,
+                                  @RequestParam(defaultValue = "10", required = false) int count) {
+        log.info("GET request received: search films by {} for \"{}\"", by, query);
+        List<Film> response = filmService.searchFilms(query, by, count);
+        log.info("Films found: {}", response.size());
+        return response;
     }
 
     @GetMapping("/popular")
     public List<Film> getPopularFilms(
-            @RequestParam(defaultValue = "10", required = false) int count
+            @RequestParam(defaultValue = "10", required = false) int count,
+            @RequestParam(defaultValue = "0", required = false) int from
     ) {
-        log.info("GET request received: top-{} popular films", count);
-        List<Film> response = filmService.getPopularFilms(count);
-        log.info("Most popular films: {}", response);
+        log.info("GET request received: top-{} popular films from position {}", count, from);
+        List<Film> response = filmService.getPopularFilms(count, from);
+        log.info("Most popular films: {}", LogSummaries.ids(response, Film::getId));
+        log.debug("Most popular films: {}", response);
         return response;
     }
 }
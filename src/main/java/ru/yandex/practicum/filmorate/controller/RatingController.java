@@ -24,15 +24,16 @@ public class RatingController {
 
     @GetMapping
     public List<Rating> getRatings() {
-        log.info("Number of ratings: {}", filmService.getRatings().size());
-        return filmService.getRatings();
+        List<Rating> response = filmService.getRatings();
+        log.info("Number of ratings: {}", response.size());
+        return response;
     }
 
     @GetMapping("{id}")
     public Rating getRatingById(@PathVariable("id") int ratingId) {
         log.info("GET request received: rating with id \"{}\"", ratingId);
         Rating response = filmService.getRatingById(ratingId);
-        log.info("Rating with id \"{}\" : {}", ratingId, response.toString());
+        log.info("Rating with id \"{}\" : {}", ratingId, response);
         return response;
     }
 }
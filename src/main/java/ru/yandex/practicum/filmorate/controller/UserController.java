@@ -1,10 +1,21 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.FriendshipImportResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.utility.ChangeResponses;
+import ru.yandex.practicum.filmorate.utility.LogSummaries;
+import ru.yandex.practicum.filmorate.utility.NdjsonStreams;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -15,63 +26,137 @@ import java.util.List;
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     public List<User> getUsers() {
-        log.info("Number of users: \"{}\"", userService.getUsers().size());
-        return userService.getUsers();
+        log.info("GET request for all users received");
+        List<User> response = userService.getUsers();
+        log.info("Number of users: \"{}\"", response.size());
+        log.debug("All users: {}", response);
+        return response;
+    }
+
+    @GetMapping(params = "limit")
+    public CursorPage<User> getUsersPage(@RequestParam(defaultValue = "0", required = false) int after,
+                                         @RequestParam int limit) {
+        log.info("GET request received: {} users after id {}", limit, after);
+        CursorPage<User> response = userService.getUsers(after, limit);
+        log.info("Users page size: {}, next: {}", response.getItems().size(), response.getNext());
+        return response;
+    }
+
+    @GetMapping(produces = NdjsonStreams.MEDIA_TYPE)
+    public StreamingResponseBody streamUsers() {
+        log.info("GET request for all users received, streaming");
+        return NdjsonStreams.of(objectMapper, userService::forEachUser);
     }
 
     @GetMapping("{id}")
     public User getUserById(@PathVariable("id") int userId) {
         log.info("GET request received: user with id \"{}\"", userId);
         User response = userService.getUserById(userId);
-        log.info("User with id \"{}\": \"{}\"", userId, response.toString());
+        log.debug("User with id \"{}\": \"{}\"", userId, response);
         return response;
     }
 
     @PostMapping
     public User createUser(@NotNull @RequestBody @Valid User user) {
-        log.info("POST request received: \"{}\"", user);
+        log.info("POST request received: user \"{}\"", user.getLogin());
+        log.debug("User to add: \"{}\"", user);
         User response = userService.createUser(user);
-        log.info("Added user: \"{}\"", response.toString());
+        log.info("Added user with id \"{}\"", response.getId());
+        log.debug("Added user: \"{}\"", response);
         return response;
     }
 
     @PutMapping
     public User updateUser(@NotNull @RequestBody @Valid User user) {
-        log.info("PUT request received: \"{}\"", user);
+        log.info("PUT request received: user with id \"{}\"", user.getId());
+        log.debug("User to update: \"{}\"", user);
         User response = userService.updateUser(user);
-        log.info("Updated user: \"{}\"", response.toString());
+        log.info("Updated user with id \"{}\"", response.getId());
+        log.debug("Updated user: \"{}\"", response);
         return response;
     }
 
     @PutMapping("{id}/friends/{friendId}")
-    public void addFriend(@PathVariable("id") int userId,
-                          @PathVariable("friendId") int friendId) {
+    public ResponseEntity<Void> addFriend(@PathVariable("id") int userId,
+                                          @PathVariable("friendId") int friendId) {
         log.info("PUT request received: user id \"{}\" adds friend id \"{}\"", userId, friendId);
-        userService.addFriend(userId, friendId);
-        log.info("User \"{}\" added friend \"{}\"", userId, friendId);
+        boolean added = userService.addFriend(userId, friendId);
+        log.info("User \"{}\" friend \"{}\" added: {}", userId, friendId, added);
+        return ChangeResponses.of(added);
+    }
+
+    @PostMapping("/friends/batch")
+    public FriendshipImportResult importFriends(@NotNull @RequestBody List<Friendship> friendships) {
+        log.info("POST request received: {} friendships to import", friendships.size());
+        FriendshipImportResult response = userService.importFriends(friendships);
+        log.info("Imported friendships: {} added, {} skipped, {} rejected",
+                response.getAdded(), response.getSkipped(), response.getErrors().size());
+        return response;
     }
 
     @DeleteMapping("{id}/friends/{friendId}")
-    public void deleteFriend(@PathVariable("id") int userId,
-                             @PathVariable("friendId") int friendId) {
+    public ResponseEntity<Void> deleteFriend(@PathVariable("id") int userId,
+                                             @PathVariable("friendId") int friendId) {
         log.info("DELETE request received: user id \"{}\" deletes friend id \"{}\"", userId, friendId);
-        userService.deleteFriend(userId, friendId);
-        log.info("User \"{}\" deleted friend \"{}\"", userId, friendId);
+        boolean deleted = userService.deleteFriend(userId, friendId);
+        log.info("User \"{}\" friend \"{}\" deleted: {}", userId, friendId, deleted);
+        return ChangeResponses.of(deleted);
     }
 
     @GetMapping("{id}/friends")
     public List<User> getUserFriends(@PathVariable("id") int userId) {
         log.info("GET request received: user \"{}\" friends", userId);
         List<User> response = userService.getUserFriends(userId);
-        log.info("User \"{}\" friends: \"{}\"", userId, response);
+        log.info("User \"{}\" friends: {}", userId, LogSummaries.ids(response, User::getId));
+        log.debug("User \"{}\" friends: \"{}\"", userId, response);
+        return response;
+    }
+
+    @GetMapping(value = "{id}/friends", params = "limit")
+    public CursorPage<User> getUserFriendsPage(@PathVariable("id") int userId,
+                                               @RequestParam(defaultValue = "0", required = false) int after,
+                                               @RequestParam int limit) {
+        log.info("GET request received: user \"{}\" friends, {} after id {}", userId, limit, after);
+        CursorPage<User> response = userService.getUserFriends(userId, after, limit);
+        log.info("User \"{}\" friends page size: {}, next: {}", userId, response.getItems().size(), response.getNext());
+        return response;
+    }
+
+    @GetMapping("{id}/friends/confirmed")
+    public List<User> getConfirmedFriends(@PathVariable("id") int userId) {
+        log.info("GET request received: user \"{}\" confirmed friends", userId);
+        List<User> response = userService.getConfirmedFriends(userId);
+        log.info("User \"{}\" confirmed friends: {}", userId, response.size());
+        return response;
+    }
+
+    @GetMapping("{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable("id") int userId,
+                                           @RequestParam(defaultValue = "10", required = false) int limit) {
+        log.info("GET request received: top-{} friend suggestions for user \"{}\"", limit, userId);
+        List<User> response = userService.getFriendSuggestions(userId, limit);
+        log.info("User \"{}\" friend suggestions: {}", userId, response.size());
+        return response;
+    }
+
+    @GetMapping("{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable("id") int userId,
+                                         @RequestParam(defaultValue = "10", required = false) int count) {
+        log.info("GET request received: top-{} film recommendations for user \"{}\"", count, userId);
+        List<Film> response = filmService.getRecommendations(userId, count);
+        log.info("User \"{}\" film recommendations: {}", userId, response.size());
         return response;
     }
 
@@ -80,7 +165,19 @@ public class UserController {
                                        @PathVariable("otherId") int otherId) {
         log.info("GET request received: common friends of users with ids \"{}\" and \"{}\"", userId, otherId);
         List<User> response = userService.getCommonFriends(userId, otherId);
-        log.info("Users \"{}\" and \"{}\" common friends: \"{}\"", userId, otherId, response);
+        log.info("Users \"{}\" and \"{}\" common friends: {}", userId, otherId, LogSummaries.ids(response, User::getId));
+        log.debug("Users \"{}\" and \"{}\" common friends: \"{}\"", userId, otherId, response);
+        return response;
+    }
+
+    @GetMapping(value = "{id}/friends/common/{otherId}", params = "limit")
+    public CursorPage<User> getCommonFriendsPage(@PathVariable("id") int userId,
+                                                 @PathVariable("otherId") int otherId,
+                                                 @RequestParam(defaultValue = "0", required = false) int after,
+                                                 @RequestParam int limit) {
+        log.info("GET request received: common friends of users \"{}\" and \"{}\", {} after id {}", userId, otherId, limit, after);
+        CursorPage<User> response = userService.getCommonFriends(userId, otherId, after, limit);
+        log.info("Users \"{}\" and \"{}\" common friends page size: {}, next: {}", userId, otherId, response.getItems().size(), response.getNext());
         return response;
     }
 
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+@Data
+@Builder
+public class CursorPage<T> {
+    List<T> items;
+
+    Integer next;
+
+    // Pages are fetched one row longer than the limit, the extra row only tells that there is a next page
+    public static int fetchSize(int limit) {
+        return limit == Integer.MAX_VALUE ? limit : limit + 1;
+    }
+
+    public static <T> CursorPage<T> of(List<T> items, int limit, ToIntFunction<T> idGetter) {
+        if (items.size() <= limit) return CursorPage.<T>builder().items(items).build();
+        List<T> page = items.subList(0, limit);
+        return CursorPage.<T>builder().items(page).next(idGetter.applyAsInt(page.get(limit - 1))).build();
+    }
+}
@@ -3,18 +3,17 @@ package ru.yandex.practicum.filmorate.model;
 import lombok.Builder;
 import lombok.Data;
 import ru.yandex.practicum.filmorate.model.validator.ReleaseDateConstraint;
+import ru.yandex.practicum.filmorate.utility.IntSortedSet;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Film {
     static final int MAX_DESCRIPTION_LENGTH = 200;
     int id;
@@ -36,15 +35,16 @@ public class Film {
 
     List<Genre> genres;
 
+    @NotNull(message = "Film rating can't be empty")
     Rating mpa;
 
-    private final Set<Long> likes = new HashSet<>();
+    private final IntSortedSet likes = new IntSortedSet();
 
-    public void addLike(int userId) {
-        this.likes.add((long) userId);
+    public boolean addLike(int userId) {
+        return this.likes.add(userId);
     }
 
-    public void deleteLike(int userId) {
-        this.likes.remove((long) userId);
+    public boolean deleteLike(int userId) {
+        return this.likes.remove(userId);
     }
 }
\ No newline at end of file
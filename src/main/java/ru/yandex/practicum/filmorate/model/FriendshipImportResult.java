@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class FriendshipImportResult {
+    int received;
+
+    int added;
+
+    int skipped;
+
+    List<BatchError> errors;
+
+    long elapsedMillis;
+
+    long edgesPerSecond;
+}
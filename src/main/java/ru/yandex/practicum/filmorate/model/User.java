@@ -3,14 +3,13 @@ package ru.yandex.practicum.filmorate.model;
 import lombok.Builder;
 import lombok.Data;
 import ru.yandex.practicum.filmorate.model.validator.BirthdayConstraint;
+import ru.yandex.practicum.filmorate.utility.IntSortedSet;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @Builder
@@ -33,13 +32,13 @@ public class User {
     @BirthdayConstraint(message = "User birthday date can't be in the future")
     LocalDate birthday;
 
-    private final Set<Long> friends = new HashSet<>();
+    private final IntSortedSet friends = new IntSortedSet();
 
-    public void addFriend(int friendId) {
-        friends.add((long) friendId);
+    public boolean addFriend(int friendId) {
+        return friends.add(friendId);
     }
 
-    public void deleteFriend(int friendId) {
-        friends.remove((long) friendId);
+    public boolean deleteFriend(int friendId) {
+        return friends.remove(friendId);
     }
 }
\ No newline at end of file
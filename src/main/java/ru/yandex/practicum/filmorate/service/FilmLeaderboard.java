@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Films ordered by number of likes, kept in memory so that top-N reads don't aggregate LIKES.
+ * Built from the storage on startup and then updated on every like change in O(log n).
+ * Publishes its size and the duration of the last rebuild as gauges.
+ */
+@Component
+@Slf4j
+public class FilmLeaderboard {
+    private static final Comparator<Entry> BY_LIKES_DESC = Comparator
+            .comparingInt((Entry entry) -> entry.likes).reversed()
+            .thenComparingInt(entry -> entry.filmId);
+
+    private final FilmStorage filmStorage;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(BY_LIKES_DESC);
+    private long lastRebuildMillis;
+
+    public FilmLeaderboard(@Qualifier("filmDbStorage") FilmStorage filmStorage, MeterRegistry meterRegistry) {
+        this.filmStorage = filmStorage;
+        Gauge.builder("filmorate.leaderboard.size", this, FilmLeaderboard::getSize)
+                .register(meterRegistry);
+        TimeGauge.builder("filmorate.leaderboard.rebuild", this, TimeUnit.MILLISECONDS, FilmLeaderboard::getLastRebuildMillis)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        entries.clear();
+        ranking.clear();
+        filmStorage.getLikesCounts().forEach(this::put);
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        log.info("Film leaderboard rebuilt: {} films in {} ms", entries.size(), lastRebuildMillis);
+    }
+
+    public synchronized void addFilm(int filmId) {
+        if (!entries.containsKey(filmId)) put(filmId, 0);
+    }
+
+    public synchronized void addLike(int filmId) {
+        Entry entry = entries.get(filmId);
+        put(filmId, entry == null ? 1 : entry.likes + 1);
+    }
+
+    public synchronized void deleteLike(int filmId) {
+        Entry entry = entries.get(filmId);
+        put(filmId, entry == null ? 0 : Math.max(entry.likes - 1, 0));
+    }
+
+    public synchronized List<Integer> getTop(int count, int from) {
+        List<Integer> filmIds = new ArrayList<>(count);
+        Iterator<Entry> iterator = ranking.iterator();
+        for (int i = 0; i < from && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        while (filmIds.size() < count && iterator.hasNext()) {
+            filmIds.add(iterator.next().filmId);
+        }
+        return filmIds;
+    }
+
+    public synchronized int getLikes(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    private void put(int filmId, int likes) {
+        Entry previous = entries.get(filmId);
+        if (previous != null) ranking.remove(previous);
+        Entry entry = new Entry(filmId, likes);
+        entries.put(filmId, entry);
+        ranking.add(entry);
+    }
+
+    private static final class Entry {
+        private final int filmId;
+        private final int likes;
+
+        private Entry(int filmId, int likes) {
+            this.filmId = filmId;
+            this.likes = likes;
+        }
+    }
+}
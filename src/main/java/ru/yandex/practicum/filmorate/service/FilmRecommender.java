@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.utility.IntSortedSet;
+
+import javax.annotation.PostConstruct;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Sparse user x film like matrix kept in memory in both directions, so that recommendations
+ * only touch the users who share at least one like with the given user, and at most
+ * {@code co-likers-per-film} of them per film. Loaded from LIKES on startup and then updated on every like change.
+ * Recommendations for different users run in parallel under the read lock, like changes take the write lock.
+ */
+@Component
+@Slf4j
+public class FilmRecommender {
+    private static final Comparator<Map.Entry<Integer, Integer>> BY_SCORE_DESC =
+            Map.Entry.<Integer, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final FilmStorage filmStorage;
+    private final int maxSimilarUsers;
+    private final int maxCoLikersPerFilm;
+    private final Map<Integer, IntSortedSet> filmsByUser = new HashMap<>();
+    private final Map<Integer, IntSortedSet> usersByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long lastRebuildMillis;
+
+    public FilmRecommender(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                           @Value("${filmorate.recommendations.similar-users:20}") int maxSimilarUsers,
+                           @Value("${filmorate.recommendations.co-likers-per-film:1000}") int maxCoLikersPerFilm,
+                           MeterRegistry meterRegistry) {
+        this.filmStorage = filmStorage;
+        this.maxSimilarUsers = maxSimilarUsers;
+        this.maxCoLikersPerFilm = maxCoLikersPerFilm;
+        TimeGauge.builder("filmorate.recommender.rebuild", this, TimeUnit.MILLISECONDS, FilmRecommender::getLastRebuildMillis)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            long start = System.currentTimeMillis();
+            filmsByUser.clear();
+            usersByFilm.clear();
+            filmStorage.forEachLike(this::put);
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            log.info("Like matrix rebuilt: {} users, {} films in {} ms", filmsByUser.size(), usersByFilm.size(), lastRebuildMillis);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            put(filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            IntSortedSet films = filmsByUser.get(userId);
+            if (films != null) films.remove(filmId);
+            IntSortedSet users = usersByFilm.get(filmId);
+            if (users != null) users.remove(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Users are ranked by the number of shared likes, films liked by the most similar users
+    // are scored by the sum of those users' overlaps
+    public List<Integer> recommend(int userId, int count) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            IntSortedSet userFilms = filmsByUser.get(userId);
+            if (userFilms == null || userFilms.isEmpty()) return List.of();
+
+            Map<Integer, Integer> overlaps = new HashMap<>();
+            userFilms.forEach(filmId -> coLikers(filmId, userId).forEach(otherId -> overlaps.merge(otherId, 1, Integer::sum)));
+
+            overlaps.entrySet().stream()
+                    .sorted(BY_SCORE_DESC)
+                    .limit(maxSimilarUsers)
+                    .forEach(similar -> filmsByUser.get(similar.getKey()).forEach(filmId -> {
+                        if (!userFilms.contains(filmId)) scores.merge(filmId, similar.getValue(), Integer::sum);
+                    }));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return scores.entrySet().stream()
+                .sorted(BY_SCORE_DESC)
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public long getLastRebuildMillis() {
+        lock.readLock().lock();
+        try {
+            return lastRebuildMillis;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A stable sample of the film's other likers: the ones with ids right after the user's, wrapping around,
+    // so that a like on a top film costs at most maxCoLikersPerFilm steps and different users see different samples
+    private IntStream coLikers(int filmId, int userId) {
+        IntSortedSet users = usersByFilm.get(filmId);
+        return IntStream.concat(users.tailStream(userId), users.stream().takeWhile(otherId -> otherId < userId))
+                .limit(maxCoLikersPerFilm);
+    }
+
+    private void put(int filmId, int userId) {
+        filmsByUser.computeIfAbsent(userId, id -> new IntSortedSet()).add(filmId);
+        usersByFilm.computeIfAbsent(filmId, id -> new IntSortedSet()).add(userId);
+    }
+}
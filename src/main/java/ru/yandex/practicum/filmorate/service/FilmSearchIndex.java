@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over film titles and descriptions.
+ * Query words match indexed words by prefix, every query word has to match. Title matches weigh more
+ * than description matches, equally relevant films are ordered by likes and then by id.
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex {
+    public enum Field {
+        TITLE(2), DESCRIPTION(1);
+
+        private final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final FilmStorage filmStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final Map<Field, TreeMap<String, Map<Integer, Integer>>> postings = new EnumMap<>(Field.class);
+    private final Map<Integer, Map<Field, List<String>>> filmTokens = new HashMap<>();
+
+    public FilmSearchIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage, FilmLeaderboard filmLeaderboard) {
+        this.filmStorage = filmStorage;
+        this.filmLeaderboard = filmLeaderboard;
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+        }
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        postings.values().forEach(Map::clear);
+        filmTokens.clear();
+        filmStorage.forEachFilm(this::index);
+        log.info("Film search index rebuilt: {} films, {} title words, {} description words in {} ms",
+                filmTokens.size(), postings.get(Field.TITLE).size(), postings.get(Field.DESCRIPTION).size(),
+                System.currentTimeMillis() - start);
+    }
+
+    public synchronized void addFilm(Film film) {
+        remove(film.getId());
+        index(film);
+    }
+
+    public synchronized List<Integer> search(String query, Set<Field> fields, int count) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || fields.isEmpty()) return List.of();
+
+        Map<Integer, Integer> scores = null;
+        for (String word : words) {
+            Map<Integer, Integer> wordScores = new HashMap<>();
+            for (Field field : fields) {
+                postings.get(field).subMap(word, true, word + Character.MAX_VALUE, true).values()
+                        .forEach(films -> films.forEach((filmId, frequency) ->
+                                wordScores.merge(filmId, frequency * field.weight, Integer::sum)));
+            }
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                scores.keySet().retainAll(wordScores.keySet());
+                scores.replaceAll((filmId, score) -> score + wordScores.get(filmId));
+            }
+            if (scores.isEmpty()) return List.of();
+        }
+
+        Map<Integer, Integer> relevance = scores;
+        return relevance.keySet().stream()
+                .sorted(Comparator.comparingInt((Integer filmId) -> relevance.get(filmId)).reversed()
+                        .thenComparing(Comparator.comparingInt(filmLeaderboard::getLikes).reversed())
+                        .thenComparingInt(filmId -> filmId))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    // Lower case words of letters and digits, "ё" is folded into "е" as most Russian texts don't use it
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{Nd}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private void index(Film film) {
+        Map<Field, List<String>> tokens = new EnumMap<>(Field.class);
+        tokens.put(Field.TITLE, tokenize(film.getName()));
+        tokens.put(Field.DESCRIPTION, tokenize(film.getDescription()));
+        tokens.forEach((field, words) -> words.forEach(word -> postings.get(field)
+                .computeIfAbsent(word, w -> new HashMap<>())
+                .merge(film.getId(), 1, Integer::sum)));
+        filmTokens.put(film.getId(), tokens);
+    }
+
+    private void remove(int filmId) {
+        Map<Field, List<String>> tokens = filmTokens.remove(filmId);
+        if (tokens == null) return;
+        tokens.forEach((field, words) -> words.forEach(word -> {
+            Map<Integer, Integer> films = postings.get(field).get(word);
+            if (films == null) return;
+            films.remove(filmId);
+            if (films.isEmpty()) postings.get(field).remove(word);
+        }));
+    }
+}
@@ -4,35 +4,96 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.RatingNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchError;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.GenresStorage;
 import ru.yandex.practicum.filmorate.storage.RatingStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class FilmService {
+    private static final int MAX_BATCH_SIZE = 10000;
+    // The leaderboard walks the ranking up to the offset under its lock, so deep offsets would stall like writes
+    private static final int MAX_POPULAR_FROM = 10000;
+
     private final FilmStorage filmStorage;
     private final GenresStorage genresStorage;
     private final RatingStorage ratingStorage;
+    private final UserStorage userStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final FilmRecommender filmRecommender;
+    private final FilmSearchIndex filmSearchIndex;
+    private final Validator validator;
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage, GenresStorage genresStorage, RatingStorage ratingStorage) {
+    public FilmService(@Qualifier("filmStorage") FilmStorage filmStorage, GenresStorage genresStorage,
+                       RatingStorage ratingStorage, @Qualifier("userDbStorage") UserStorage userStorage,
+                       FilmLeaderboard filmLeaderboard, FilmRecommender filmRecommender,
+                       FilmSearchIndex filmSearchIndex, Validator validator) {
         this.filmStorage = filmStorage;
         this.genresStorage = genresStorage;
         this.ratingStorage = ratingStorage;
+        this.userStorage = userStorage;
+        this.filmLeaderboard = filmLeaderboard;
+        this.filmRecommender = filmRecommender;
+        this.filmSearchIndex = filmSearchIndex;
+        this.validator = validator;
     }
 
     public Film createFilm(Film film) {
-        return filmStorage.createFilm(film);
+        Film created = filmStorage.createFilm(film);
+        filmLeaderboard.addFilm(created.getId());
+        filmSearchIndex.addFilm(created);
+        return created;
+    }
+
+    // Invalid films are reported by their position in the request, the valid ones are still inserted
+    public BatchResult<Film> createFilms(List<Film> films) {
+        if (films.size() > MAX_BATCH_SIZE) {
+            log.error("Film batch too large: {}", films.size());
+            throw new ValidationException("Max films in one batch " + MAX_BATCH_SIZE);
+        }
+        List<Film> validFilms = new ArrayList<>();
+        List<BatchError> errors = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            String error = validateFilm(films.get(i));
+            if (error == null) {
+                validFilms.add(films.get(i));
+            } else {
+                errors.add(BatchError.builder().index(i).message(error).build());
+            }
+        }
+        List<Film> created = validFilms.isEmpty() ? List.of() : filmStorage.createFilms(validFilms);
+        created.forEach(film -> {
+            filmLeaderboard.addFilm(film.getId());
+            filmSearchIndex.addFilm(film);
+        });
+        return BatchResult.<Film>builder().items(created).errors(errors).build();
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        filmSearchIndex.addFilm(updated);
+        return updated;
     }
 
     public Film getFilmById(int filmId) {
@@ -43,16 +104,78 @@ public class FilmService {
         return filmStorage.getFilms();
     }
 
-    public void addLike(int filmId, int userId) {
-        filmStorage.addLike(filmId, userId);
+    public CursorPage<Film> getFilms(int after, int limit) {
+        checkPageLimit(limit);
+        return CursorPage.of(filmStorage.getFilms(after, CursorPage.fetchSize(limit)), limit, Film::getId);
+    }
+
+    public void forEachFilm(Consumer<Film> consumer) {
+        filmStorage.forEachFilm(consumer);
+    }
+
+    // Repeated likes and unlikes are no-ops, the in-memory views are only touched when the storage changed
+    public boolean addLike(int filmId, int userId) {
+        boolean added = filmStorage.addLike(filmId, userId);
+        if (added) {
+            filmLeaderboard.addLike(filmId);
+            filmRecommender.addLike(filmId, userId);
+        }
+        return added;
     }
 
-    public void deleteLike(int filmId, int userId) {
-        filmStorage.deleteLike(filmId, userId);
+    public boolean deleteLike(int filmId, int userId) {
+        boolean deleted = filmStorage.deleteLike(filmId, userId);
+        if (deleted) {
+            filmLeaderboard.deleteLike(filmId);
+            filmRecommender.deleteLike(filmId, userId);
+        }
+        return deleted;
     }
 
-    public List<Film> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count);
+    public List<Film> getPopularFilms(int count, int from) {
+        if (count <= 0 || from < 0) {
+            log.error("Invalid popular films page: count {}, from {}", count, from);
+            throw new ValidationException("Parameter count should be > 0 and from should be >= 0");
+        }
+        if (from > MAX_POPULAR_FROM) {
+            log.error("Popular films offset {} is too deep", from);
+            throw new ValidationException("Max popular films offset " + MAX_POPULAR_FROM);
+        }
+        return filmStorage.getFilmsByIds(filmLeaderboard.getTop(count, from));
+    }
+
+    public List<Film> searchFilms(String query, List<String> by, int count) {
+        if (count <= 0) {
+            log.error("Invalid search results count {}", count);
+            throw new ValidationException("Parameter count should be > 0");
+        }
+        Set<FilmSearchIndex.Field> fields = EnumSet.noneOf(FilmSearchIndex.Field.class);
+        for (String field : by) {
+            switch (field.trim().toLowerCase()) {
+                case "title":
+                    fields.add(FilmSearchIndex.Field.TITLE);
+                    break;
+                case "description":
+                    fields.add(FilmSearchIndex.Field.DESCRIPTION);
+                    break;
+                default:
+                    log.error("Unknown search field {}", field);
+                    throw new ValidationException("Parameter by should contain title and/or description");
+            }
+        }
+        return filmStorage.getFilmsByIds(filmSearchIndex.search(query, fields, count));
+    }
+
+    public List<Film> getRecommendations(int userId, int count) {
+        if (count <= 0) {
+            log.error("Invalid recommendations count {}", count);
+            throw new ValidationException("Parameter count should be > 0");
+        }
+        if (!userStorage.userExists(userId)) {
+            log.error("User with id {} doesn't exist", userId);
+            throw new UserNotFoundException("User with id " + userId + " doesn't exist");
+        }
+        return filmStorage.getFilmsByIds(filmRecommender.recommend(userId, count));
     }
 
     public List<Rating> getRatings() {
@@ -70,4 +193,31 @@ public class FilmService {
     public Genre getGenreById(int genreId) {
         return genresStorage.getGenreById(genreId);
     }
+
+    private String validateFilm(Film film) {
+        if (film == null) return "Film can't be null";
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            ratingStorage.getRatingById(film.getMpa().getId());
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> genresStorage.getGenreById(genre.getId()));
+            }
+        } catch (RatingNotFoundException | GenreNotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private void checkPageLimit(int limit) {
+        if (limit <= 0) {
+            log.error("Invalid page limit {}", limit);
+            throw new ValidationException("Parameter limit should be > 0");
+        }
+    }
 }
\ No newline at end of file
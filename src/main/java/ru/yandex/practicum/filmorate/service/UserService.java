@@ -3,21 +3,36 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchError;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.FriendshipImportResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class UserService {
+    private static final int MAX_FRIENDS_IMPORT_SIZE = 1_000_000;
+
     private final UserStorage userStorage;
+    private final int suggestionsMaxFanout;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage,
+                       @Value("${filmorate.suggestions.max-fanout:1000}") int suggestionsMaxFanout) {
         this.userStorage = userStorage;
+        this.suggestionsMaxFanout = suggestionsMaxFanout;
     }
 
     public User createUser(User user) {
@@ -36,19 +51,110 @@ public class UserService {
         return new ArrayList<>(userStorage.getUsers());
     }
 
-    public void addFriend(int userId, int friendId) {
-        userStorage.addFriend(userId, friendId);
+    public CursorPage<User> getUsers(int after, int limit) {
+        checkPageLimit(limit);
+        return CursorPage.of(userStorage.getUsers(after, CursorPage.fetchSize(limit)), limit, User::getId);
+    }
+
+    public void forEachUser(Consumer<User> consumer) {
+        userStorage.forEachUser(consumer);
     }
 
-    public void deleteFriend(int userId, int friendId) {
-        userStorage.deleteFriend(userId, friendId);
+    public boolean addFriend(int userId, int friendId) {
+        return userStorage.addFriend(userId, friendId);
+    }
+
+    public boolean deleteFriend(int userId, int friendId) {
+        return userStorage.deleteFriend(userId, friendId);
+    }
+
+    // Ids of the whole list are checked with one lookup instead of a probe per edge, repeated edges are
+    // inserted once; edges that already exist or repeat are counted as skipped
+    public FriendshipImportResult importFriends(List<Friendship> friendships) {
+        if (friendships.size() > MAX_FRIENDS_IMPORT_SIZE) {
+            log.error("Friends import too large: {}", friendships.size());
+            throw new ValidationException("Max friendships in one import " + MAX_FRIENDS_IMPORT_SIZE);
+        }
+        long start = System.nanoTime();
+        Set<Integer> userIds = new HashSet<>();
+        friendships.forEach(friendship -> {
+            userIds.add(friendship.getUserId());
+            userIds.add(friendship.getFriendId());
+        });
+        Set<Integer> existingIds = userStorage.getExistingUserIds(userIds);
+
+        List<Friendship> validFriendships = new ArrayList<>();
+        List<BatchError> errors = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            String error = validateFriendship(friendship, existingIds);
+            if (error != null) {
+                errors.add(BatchError.builder().index(i).message(error).build());
+            } else if (seen.add(((long) friendship.getUserId() << 32) | (friendship.getFriendId() & 0xFFFFFFFFL))) {
+                validFriendships.add(friendship);
+            }
+        }
+        int added = validFriendships.isEmpty() ? 0 : userStorage.addFriends(validFriendships);
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        long edgesPerSecond = friendships.size() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        log.info("Friends import: {} received, {} added, {} rejected in {} ms, {} edges/s",
+                friendships.size(), added, errors.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), edgesPerSecond);
+        return FriendshipImportResult.builder()
+                .received(friendships.size())
+                .added(added)
+                .skipped(friendships.size() - errors.size() - added)
+                .errors(errors)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .edgesPerSecond(edgesPerSecond)
+                .build();
     }
 
     public List<User> getUserFriends(int userId) {
         return userStorage.getFriends(userId);
     }
 
+    public List<User> getConfirmedFriends(int userId) {
+        return userStorage.getConfirmedFriends(userId);
+    }
+
+    public CursorPage<User> getUserFriends(int userId, int after, int limit) {
+        checkPageLimit(limit);
+        return CursorPage.of(userStorage.getFriends(userId, after, CursorPage.fetchSize(limit)), limit, User::getId);
+    }
+
     public List<User> getCommonFriends(int userId, int otherId) {
         return userStorage.getCommonFriends(userId, otherId);
     }
+
+    public CursorPage<User> getCommonFriends(int userId, int otherId, int after, int limit) {
+        checkPageLimit(limit);
+        return CursorPage.of(userStorage.getCommonFriends(userId, otherId, after, CursorPage.fetchSize(limit)), limit, User::getId);
+    }
+
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        checkPageLimit(limit);
+        return userStorage.getFriendSuggestions(userId, suggestionsMaxFanout, limit);
+    }
+
+    private String validateFriendship(Friendship friendship, Set<Integer> existingIds) {
+        if (friendship.getUserId() == friendship.getFriendId()) {
+            return "User with id " + friendship.getUserId() + " can't be a friend of themselves";
+        }
+        if (!existingIds.contains(friendship.getUserId())) {
+            return "User with id " + friendship.getUserId() + " doesn't exist";
+        }
+        if (!existingIds.contains(friendship.getFriendId())) {
+            return "User with id " + friendship.getFriendId() + " doesn't exist";
+        }
+        return null;
+    }
+
+    private void checkPageLimit(int limit) {
+        if (limit <= 0) {
+            log.error("Invalid page limit {}", limit);
+            throw new ValidationException("Parameter limit should be > 0");
+        }
+    }
 }
@@ -3,19 +3,40 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film getFilmById(int filmId);
 
     List<Film> getFilms();
 
-    void addLike(int filmId, int userId);
+    List<Film> getFilms(int afterId, int limit);
+
+    void forEachFilm(Consumer<Film> consumer);
+
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
+    boolean addLike(int filmId, int userId);
+
+    boolean deleteLike(int filmId, int userId);
+
+    // FilmService serves popular films from FilmLeaderboard; this query stays as the reference
+    // the leaderboard is checked against in tests and benchmarks
+    List<Film> getPopularFilms(int count, int from);
+
+    default List<Film> getPopularFilms(int count) {
+        return getPopularFilms(count, 0);
+    }
 
-    void deleteLike(int filmId, int userId);
+    Map<Integer, Integer> getLikesCounts();
 
-    List<Film> getPopularFilms(int count);
+    void forEachLike(BiConsumer<Integer, Integer> consumer);
 }
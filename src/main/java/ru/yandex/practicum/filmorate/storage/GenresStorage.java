@@ -8,4 +8,6 @@ public interface GenresStorage {
     List<Genre> getAllGenres();
 
     Genre getGenreById(int genreId);
+
+    void refresh();
 }
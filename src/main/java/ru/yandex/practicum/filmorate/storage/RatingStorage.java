@@ -9,4 +9,6 @@ public interface RatingStorage {
     List<Rating> getAllRatings();
 
     Rating getRatingById(int ratingId);
+
+    void refresh();
 }
@@ -1,8 +1,12 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User createUser(User user);
@@ -11,13 +15,31 @@ public interface UserStorage {
 
     User getUserById(int userId);
 
+    boolean userExists(int userId);
+
+    Set<Integer> getExistingUserIds(Collection<Integer> userIds);
+
     List<User> getFriends(int userId);
 
+    List<User> getFriends(int userId, int afterId, int limit);
+
     List<User> getUsers();
 
-    void addFriend(int userId, int friendId);
+    List<User> getUsers(int afterId, int limit);
+
+    void forEachUser(Consumer<User> consumer);
+
+    boolean addFriend(int userId, int friendId);
 
-    void deleteFriend(int userId, int friendId);
+    boolean deleteFriend(int userId, int friendId);
+
+    int addFriends(List<Friendship> friendships);
+
+    List<User> getConfirmedFriends(int userId);
 
     List<User> getCommonFriends(int userId, int otherId);
+
+    List<User> getCommonFriends(int userId, int otherId, int afterId, int limit);
+
+    List<User> getFriendSuggestions(int userId, int maxFanout, int limit);
 }
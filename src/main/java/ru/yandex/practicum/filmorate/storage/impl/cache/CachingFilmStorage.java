@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through LRU cache of films by id in front of another {@link FilmStorage}.
+ * Cached films are copied on the way in and out, so callers can't modify cache entries.
+ * Every invalidation bumps the generation of the film's stripe, and a loaded film is only cached
+ * if its stripe generation hasn't changed since the load started, so a load that raced with a write
+ * can't put the old film back after the write invalidated it.
+ */
+public class CachingFilmStorage implements FilmStorage, MeterBinder {
+    private static final int GENERATION_STRIPES = 64;
+
+    private final FilmStorage delegate;
+    private final Map<Integer, Film> cache;
+    // Guarded by cache, like the map itself
+    private final long[] generations = new long[GENERATION_STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingFilmStorage(FilmStorage delegate, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Film> eldest) {
+                boolean evict = size() > maxSize;
+                if (evict) evictions.increment();
+                return evict;
+            }
+        };
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        Film created = delegate.createFilm(film);
+        invalidate(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        List<Film> created = delegate.createFilms(films);
+        created.forEach(film -> invalidate(film.getId()));
+        return created;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Film updated = delegate.updateFilm(film);
+        invalidate(updated.getId());
+        return updated;
+    }
+
+    @Override
+    public Film getFilmById(int filmId) {
+        Film cached = get(filmId);
+        if (cached != null) return cached;
+
+        long generation = generation(filmId);
+        Film film = delegate.getFilmById(filmId);
+        put(film, generation);
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilms() {
+        return delegate.getFilms();
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return delegate.getFilms(afterId, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        delegate.forEachFilm(consumer);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        Map<Integer, Film> found = new HashMap<>();
+        Map<Integer, Long> missing = new HashMap<>();
+        for (Integer filmId : filmIds) {
+            Film cached = get(filmId);
+            if (cached != null) {
+                found.put(filmId, cached);
+            } else {
+                missing.put(filmId, generation(filmId));
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Film film : delegate.getFilmsByIds(new ArrayList<>(missing.keySet()))) {
+                put(film, missing.get(film.getId()));
+                found.put(film.getId(), film);
+            }
+        }
+        return filmIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        boolean added = delegate.addLike(filmId, userId);
+        if (added) invalidate(filmId);
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        boolean deleted = delegate.deleteLike(filmId, userId);
+        if (deleted) invalidate(filmId);
+        return deleted;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int from) {
+        return delegate.getPopularFilms(count, from);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        return delegate.getLikesCounts();
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        delegate.forEachLike(consumer);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, CachingFilmStorage::getHitCount)
+                .tag("cache", "films").tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, CachingFilmStorage::getMissCount)
+                .tag("cache", "films").tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, CachingFilmStorage::getEvictionCount)
+                .tag("cache", "films")
+                .register(registry);
+        Gauge.builder("cache.size", this, CachingFilmStorage::getSize)
+                .tag("cache", "films")
+                .register(registry);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private Film get(int filmId) {
+        Film cached;
+        synchronized (cache) {
+            cached = cache.get(filmId);
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copyOf(cached);
+    }
+
+    private long generation(int filmId) {
+        synchronized (cache) {
+            return generations[stripe(filmId)];
+        }
+    }
+
+    // Skipped when the film was invalidated after the load started, the next read loads it again
+    private void put(Film film, long generation) {
+        Film copy = copyOf(film);
+        synchronized (cache) {
+            if (generations[stripe(copy.getId())] == generation) cache.put(copy.getId(), copy);
+        }
+    }
+
+    private void invalidate(int filmId) {
+        synchronized (cache) {
+            generations[stripe(filmId)]++;
+            cache.remove(filmId);
+        }
+    }
+
+    private static int stripe(int filmId) {
+        return Math.floorMod(filmId, GENERATION_STRIPES);
+    }
+
+    private Film copyOf(Film film) {
+        Film copy = film.toBuilder()
+                .genres(film.getGenres() == null ? null : new ArrayList<>(film.getGenres()))
+                .build();
+        film.getLikes().forEach(copy::addLike);
+        return copy;
+    }
+}
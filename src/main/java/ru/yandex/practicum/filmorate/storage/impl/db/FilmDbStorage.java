@@ -2,40 +2,64 @@ package ru.yandex.practicum.filmorate.storage.impl.db;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenresStorage;
+import ru.yandex.practicum.filmorate.storage.RatingStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.storage.impl.db.mapper.FilmMapper;
-import ru.yandex.practicum.filmorate.storage.impl.db.mapper.GenreMapper;
-import ru.yandex.practicum.filmorate.storage.impl.db.mapper.RatingMapper;
 import ru.yandex.practicum.filmorate.utility.SqlQueries;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component("filmDbStorage")
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int INSERT_BATCH_SIZE = 1000;
 
     private final JdbcTemplate jdbcTemplate;
     private final UserStorage userStorage;
+    private final GenresStorage genresStorage;
+    private final RatingStorage ratingStorage;
+    private final LikesCounter likesCounter;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, @Qualifier("userDbStorage") UserStorage userStorage) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, @Qualifier("userDbStorage") UserStorage userStorage,
+                         GenresStorage genresStorage, RatingStorage ratingStorage, LikesCounter likesCounter) {
         this.jdbcTemplate = jdbcTemplate;
         this.userStorage = userStorage;
+        this.genresStorage = genresStorage;
+        this.ratingStorage = ratingStorage;
+        this.likesCounter = likesCounter;
     }
 
     @Override
@@ -45,16 +69,29 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
+    @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        for (int from = 0; from < films.size(); from += INSERT_BATCH_SIZE) {
+            addFilmsToDb(films.subList(from, Math.min(from + INSERT_BATCH_SIZE, films.size())));
+        }
+        List<Object[]> filmsGenres = new ArrayList<>();
+        films.forEach(film -> filmsGenres.addAll(dedupeGenres(film)));
+        batchInsertFilmsGenres(filmsGenres);
+        log.info("Added {} films with {} genre links", films.size(), filmsGenres.size());
+        return films;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        checkFilmId(film.getId());
-        jdbcTemplate.update(SqlQueries.UPDATE_FILM,
+        int updated = jdbcTemplate.update(SqlQueries.UPDATE_FILM,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
-                film.getMpa().getId(),
+                film.getMpa() == null ? null : film.getMpa().getId(),
                 film.getId());
+        if (updated == 0) throwFilmNotFound(film.getId());
         jdbcTemplate.update(SqlQueries.DELETE_FILMS_GENRES, film.getId());
         updateFilmGenres(film);
         return film;
@@ -67,134 +104,210 @@ public class FilmDbStorage implements FilmStorage {
             log.error("Film with id {} doesn't exist", filmId);
             throw new FilmNotFoundException("Film with id " + filmId + " doesn't exist");
         }
-
-        Rating mpa = getFilmRating(filmId);
-        List<Genre> genres = getFilmGenres(filmId);
-
-        film.setMpa(mpa);
-        film.setGenres(genres);
+        hydrate(List.of(film));
         return film;
     }
 
     @Override
     public List<Film> getFilms() {
         List<Film> allFilms = jdbcTemplate.query(SqlQueries.GET_FILMS, new FilmMapper());
-        getGenres(allFilms);
-        getRatings(allFilms);
+        hydrate(allFilms, SqlQueries.GET_GENRES_FOR_ALL_FILMS);
         return allFilms;
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        checkUserId(userId);
-        checkFilmId(filmId);
-        jdbcTemplate.update(SqlQueries.ADD_LIKE, filmId, userId);
+    public List<Film> getFilms(int afterId, int limit) {
+        List<Film> films = jdbcTemplate.query(SqlQueries.GET_FILMS_PAGE, new FilmMapper(), afterId, limit);
+        hydrate(films);
+        return films;
     }
 
     @Override
-    public void deleteLike(int filmId, int userId) {
-        checkUserId(userId);
-        checkFilmId(filmId);
-        jdbcTemplate.update(SqlQueries.DELETE_LIKE, filmId, userId);
+    public void forEachFilm(Consumer<Film> consumer) {
+        FilmMapper filmMapper = new FilmMapper();
+        Film[] current = new Film[1];
+        jdbcTemplate.query(SqlQueries.GET_FILMS_WITH_GENRE_IDS, stmt -> stmt.setFetchSize(STREAM_FETCH_SIZE), (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("FILM_ID");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) consumer.accept(current[0]);
+                current[0] = filmMapper.mapRow(rs, rs.getRow());
+                current[0].setMpa(ratingStorage.getRatingById(current[0].getMpa().getId()));
+                current[0].setGenres(new ArrayList<>());
+            }
+            int genreId = rs.getInt("GENRE_ID");
+            if (!rs.wasNull()) current[0].getGenres().add(genresStorage.getGenreById(genreId));
+        });
+        if (current[0] != null) consumer.accept(current[0]);
     }
 
     @Override
-    public List<Film> getPopularFilms(int count) {
-        List<Film> popularFilms = jdbcTemplate.query(SqlQueries.GET_POPULAR_FILMS, new FilmMapper());
-        getRatings(popularFilms);
-        getGenres(popularFilms);
-        return popularFilms.stream().limit(count).collect(Collectors.toList());
-    }
-
-    private void getGenres(List<Film> films) {
-        SqlRowSet filmGenreIdRows = jdbcTemplate.queryForRowSet(SqlQueries.GET_GENRES_FOR_ALL_FILMS);
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) return new ArrayList<>();
+        String placeholders = String.join(", ", Collections.nCopies(filmIds.size(), "?"));
+        List<Film> films = jdbcTemplate.query(String.format(SqlQueries.GET_FILMS_BY_IDS, placeholders), new FilmMapper(), filmIds.toArray());
+        hydrate(films);
 
-        while (filmGenreIdRows.next()) {
-            int filmId = filmGenreIdRows.getInt("FILM_ID");
-            int genreId = filmGenreIdRows.getInt("GENRE_ID");
-            String genreName = filmGenreIdRows.getString("GENRE_NAME");
+        Map<Integer, Film> filmsById = films.stream().collect(Collectors.toMap(Film::getId, Function.identity()));
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-            for (Film film : films) {
-                if (film.getId() == filmId) {
-                    List<Genre> genres = film.getGenres();
-                    if (genres == null) genres = new ArrayList<>();
-                    Genre filmGenre = Genre.builder().id(genreId).name(genreName).build();
-                    genres.add(filmGenre);
-                    film.setGenres(genres);
-                }
-            }
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        boolean added;
+        try {
+            added = jdbcTemplate.update(SqlQueries.ADD_LIKE, filmId, userId, filmId, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            added = false;
+        } catch (DataIntegrityViolationException e) {
+            checkUserId(userId);
+            checkFilmId(filmId);
+            throw e;
         }
+        if (added) likesCounter.add(filmId, 1);
+        return added;
+    }
 
-        for (Film film : films) {
-            if (film.getGenres() == null) film.setGenres(new ArrayList<>());
+    @Override
+    @Transactional
+    public boolean deleteLike(int filmId, int userId) {
+        int deleted = jdbcTemplate.update(SqlQueries.DELETE_LIKE, filmId, userId);
+        if (deleted == 0) {
+            checkUserId(userId);
+            checkFilmId(filmId);
+            return false;
         }
+        likesCounter.add(filmId, -deleted);
+        return true;
     }
 
-    private void getRatings(List<Film> films) {
-        SqlRowSet ratingIdRows = jdbcTemplate.queryForRowSet(SqlQueries.GET_RATINGS_FOR_ALL_FILMS);
+    @Override
+    public List<Film> getPopularFilms(int count, int from) {
+        List<Film> popularFilms = jdbcTemplate.query(SqlQueries.GET_POPULAR_FILMS, new FilmMapper(), count, from);
+        hydrate(popularFilms);
+        return popularFilms;
+    }
 
-        while (ratingIdRows.next()) {
-            int filmId = ratingIdRows.getInt("FILM_ID");
-            int ratingId = ratingIdRows.getInt("RATING_ID");
-            String ratingName = ratingIdRows.getString("RATING_NAME");
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        likesCounter.flush();
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        jdbcTemplate.query(SqlQueries.GET_LIKES_COUNTS, (RowCallbackHandler) rs ->
+                likesCounts.put(rs.getInt("FILM_ID"), rs.getInt("LIKES_COUNT")));
+        return likesCounts;
+    }
 
-            for (Film film : films) {
-                if (film.getId() == filmId) {
-                    Rating filmRating = Rating.builder().id(ratingId).name(ratingName).build();
-                    if (filmRating != null) film.setMpa(filmRating);
-                    break;
-                }
-            }
-        }
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        jdbcTemplate.query(SqlQueries.GET_LIKES, stmt -> stmt.setFetchSize(STREAM_FETCH_SIZE), (RowCallbackHandler) rs -> consumer.accept(rs.getInt("FILM_ID"), rs.getInt("USER_ID")));
     }
 
-    private List<Genre> getFilmGenres(int filmId) {
-        return jdbcTemplate.query(SqlQueries.GET_FILM_GENRES, new GenreMapper(), filmId);
+    // Ratings and genre names come from the reference data cache, genre links for a batch of films
+    // are loaded with one query and attached through an id -> film index
+    private void hydrate(List<Film> films) {
+        if (films.isEmpty()) return;
+        String placeholders = String.join(", ", Collections.nCopies(films.size(), "?"));
+        Object[] filmIds = films.stream().map(Film::getId).toArray();
+        hydrate(films, String.format(SqlQueries.GET_GENRES_FOR_FILMS, placeholders), filmIds);
     }
 
-    private Rating getFilmRating(int filmId) {
-        return jdbcTemplate.query(SqlQueries.GET_FILM_RATING, new RatingMapper(), filmId).stream().findAny().orElse(null);
+    private void hydrate(List<Film> films, String sql, Object... args) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            film.setMpa(ratingStorage.getRatingById(film.getMpa().getId()));
+            film.setGenres(new ArrayList<>());
+            filmsById.put(film.getId(), film);
+        }
+
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            Film film = filmsById.get(rs.getInt("FILM_ID"));
+            if (film != null) film.getGenres().add(genresStorage.getGenreById(rs.getInt("GENRE_ID")));
+        }, args);
     }
 
     private void updateFilmGenres(Film film) {
-        List<Genre> filmGenres = film.getGenres();
-        if (filmGenres != null) {
-            List<Genre> filmGenresWithoutDublicates = new ArrayList<>(new LinkedHashSet<>(film.getGenres()));
-            film.setGenres(filmGenresWithoutDublicates);
-            for (Genre genre : filmGenresWithoutDublicates) {
-                jdbcTemplate.update(SqlQueries.ADD_FILMS_GENRES, film.getId(), genre.getId());
+        batchInsertFilmsGenres(dedupeGenres(film));
+    }
+
+    private List<Object[]> dedupeGenres(Film film) {
+        if (film.getGenres() == null) return List.of();
+        List<Genre> filmGenresWithoutDublicates = new ArrayList<>(new LinkedHashSet<>(film.getGenres()));
+        film.setGenres(filmGenresWithoutDublicates);
+        return filmGenresWithoutDublicates.stream()
+                .map(genre -> new Object[]{film.getId(), genre.getId()})
+                .collect(Collectors.toList());
+    }
+
+    private void batchInsertFilmsGenres(List<Object[]> filmsGenres) {
+        if (filmsGenres.isEmpty()) return;
+        jdbcTemplate.batchUpdate(SqlQueries.ADD_FILMS_GENRES, filmsGenres, INSERT_BATCH_SIZE, (stmt, filmGenre) -> {
+            stmt.setInt(1, (Integer) filmGenre[0]);
+            stmt.setInt(2, (Integer) filmGenre[1]);
+        });
+    }
+
+    // One batched insert per chunk, generated ids come back in the order the rows were added
+    private void addFilmsToDb(List<Film> films) {
+        PreparedStatementCreatorFactory statement = new PreparedStatementCreatorFactory(SqlQueries.ADD_FILM);
+        statement.setGeneratedKeysColumnNames("FILM_ID");
+        jdbcTemplate.execute(statement.newPreparedStatementCreator(List.of()), (PreparedStatementCallback<Void>) stmt -> {
+            for (Film film : films) {
+                setFilmParameters(stmt, film);
+                stmt.addBatch();
             }
-        }
+            stmt.executeBatch();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                for (Film film : films) {
+                    keys.next();
+                    film.setId(keys.getInt(1));
+                }
+            }
+            return null;
+        });
+    }
+
+    private void setFilmParameters(PreparedStatement stmt, Film film) throws SQLException {
+        stmt.setString(1, film.getName());
+        stmt.setString(2, film.getDescription());
+        stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+        stmt.setInt(4, film.getDuration());
+        stmt.setInt(5, film.getMpa().getId());
     }
 
     private void addFilmToDb(Film film) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(SqlQueries.ADD_FILM, new String[]{"FILM_ID"});
-            stmt.setString(1, film.getName());
-            stmt.setString(2, film.getDescription());
-            stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
-            stmt.setInt(4, film.getDuration());
-            stmt.setInt(5, film.getMpa().getId());
-            return stmt;
-        }, keyHolder);
+        PreparedStatementCreatorFactory statement = new PreparedStatementCreatorFactory(SqlQueries.ADD_FILM,
+                Types.VARCHAR, Types.VARCHAR, Types.DATE, Types.INTEGER, Types.INTEGER);
+        statement.setGeneratedKeysColumnNames("FILM_ID");
+        jdbcTemplate.update(statement.newPreparedStatementCreator(Arrays.asList(film.getName(), film.getDescription(),
+                Date.valueOf(film.getReleaseDate()), film.getDuration(), film.getMpa().getId())), keyHolder);
         film.setId(keyHolder.getKey().intValue());
     }
 
+    // Likes are written without loading the film or the user first: foreign keys reject unknown ids
+    // and only then the ids are probed to report which of them doesn't exist.
+    // A repeated like inserts nothing, a concurrent duplicate is rejected by the primary key
     private void checkUserId(int userId) {
-        if (userStorage.getUserById(userId) == null) {
+        if (!userStorage.userExists(userId)) {
             log.error("User with id {} doesn't exist", userId);
             throw new UserNotFoundException("User with id " + userId + " doesn't exist");
         }
     }
 
     private void checkFilmId(int filmId) {
-        if (getFilmById(filmId) == null) {
-            log.error("Film with id {} doesn't exist", filmId);
-            throw new FilmNotFoundException("Film with id " + filmId + " doesn't exist");
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(SqlQueries.FILM_EXISTS, Boolean.class, filmId))) {
+            throwFilmNotFound(filmId);
         }
     }
 
+    private void throwFilmNotFound(int filmId) {
+        log.error("Film with id {} doesn't exist", filmId);
+        throw new FilmNotFoundException("Film with id " + filmId + " doesn't exist");
+    }
+
     public void clearDb() {
         jdbcTemplate.update("DELETE FROM APP_USERS");
         jdbcTemplate.update("DELETE FROM FILMS");
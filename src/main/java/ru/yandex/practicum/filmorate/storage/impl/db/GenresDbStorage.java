@@ -9,13 +9,18 @@ import ru.yandex.practicum.filmorate.storage.GenresStorage;
 import ru.yandex.practicum.filmorate.storage.impl.db.mapper.GenreMapper;
 import ru.yandex.practicum.filmorate.utility.SqlQueries;
 
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class GenresDbStorage implements GenresStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private volatile Genre[] genresById = new Genre[0];
 
     public GenresDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
@@ -23,16 +28,29 @@ public class GenresDbStorage implements GenresStorage {
 
     @Override
     public List<Genre> getAllGenres() {
-        return jdbcTemplate.query(SqlQueries.GET_GENRES, new GenreMapper());
+        return Arrays.stream(genresById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableList());
     }
 
     @Override
     public Genre getGenreById(int genreId) {
-        Genre genre = jdbcTemplate.query(SqlQueries.GET_GENRE, new GenreMapper(), genreId).stream().findAny().orElse(null);
+        Genre[] genres = genresById;
+        Genre genre = genreId > 0 && genreId < genres.length ? genres[genreId] : null;
         if (genre == null) {
             log.error("Genre with id {} doesn't exist", genreId);
             throw new GenreNotFoundException("Genre with id " + genreId + " doesn't exist");
         }
         return genre;
     }
+
+    @Override
+    @PostConstruct
+    public void refresh() {
+        List<Genre> genres = jdbcTemplate.query(SqlQueries.GET_GENRES, new GenreMapper());
+        Genre[] loaded = new Genre[genres.stream().mapToInt(Genre::getId).max().orElse(0) + 1];
+        genres.forEach(genre -> loaded[genre.getId()] = genre);
+        genresById = loaded;
+        log.info("Loaded {} genres", genres.size());
+    }
 }
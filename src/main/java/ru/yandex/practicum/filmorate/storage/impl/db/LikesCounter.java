@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage.impl.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.utility.SqlQueries;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the denormalized FILMS.LIKES_COUNT column.
+ * In write-behind mode deltas are collected in striped per-film counters and flushed in one batch on a schedule,
+ * so popularity reads may lag behind LIKES by up to one flush interval.
+ */
+@Component
+@Slf4j
+public class LikesCounter {
+    private static final int STRIPES = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean writeBehind;
+    // Each stripe is guarded by its own monitor; a flush swaps the maps out, so films without new likes don't stay
+    private final List<Map<Integer, Integer>> stripes = new ArrayList<>(STRIPES);
+    private boolean closed;
+
+    public LikesCounter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                        @Value("${filmorate.likes.write-behind:false}") boolean writeBehind) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.writeBehind = writeBehind;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new HashMap<>());
+        }
+    }
+
+    public void add(int filmId, int delta) {
+        if (writeBehind) {
+            merge(filmId, delta);
+        } else {
+            jdbcTemplate.update(SqlQueries.UPDATE_LIKES_COUNT, delta, filmId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.flush-interval-ms:1000}")
+    public synchronized void flushScheduled() {
+        if (!closed) flush();
+    }
+
+    // Runs once on shutdown and stops the scheduled flushes, so nothing is written after the final flush
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        flush();
+    }
+
+    // Deltas are taken out of the stripes before the update and put back if its transaction rolls back,
+    // so they are neither lost nor applied twice
+    public synchronized void flush() {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < STRIPES; i++) {
+            Map<Integer, Integer> stripe = stripes.get(i);
+            synchronized (stripe) {
+                deltas.putAll(stripe);
+                stripe.clear();
+            }
+        }
+        if (deltas.isEmpty()) return;
+
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((filmId, delta) -> batch.add(new Object[]{delta, filmId}));
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SqlQueries.UPDATE_LIKES_COUNT, batch));
+        } catch (RuntimeException e) {
+            deltas.forEach(this::merge);
+            log.error("Like counters flush failed, {} films will be retried", deltas.size(), e);
+            throw e;
+        }
+        log.debug("Flushed like counters for {} films", batch.size());
+    }
+
+    private void merge(int filmId, int delta) {
+        Map<Integer, Integer> stripe = stripes.get(Math.floorMod(filmId, STRIPES));
+        synchronized (stripe) {
+            // A zero sum removes the entry
+            stripe.merge(filmId, delta, (current, added) -> current + added == 0 ? null : current + added);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.impl.db;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.utility.SqlQueries;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every JdbcTemplate call, statement execution and row mapping included, under the name
+ * of the SqlQueries constant it runs. Statements built from a constant with String.format are matched
+ * by the part before the first placeholder. Anything else is tagged "other" to keep the number of series bounded.
+ */
+@Aspect
+@Component
+public class QueryMetricsAspect {
+    static final String METRIC_NAME = "filmorate.sql";
+    static final String OTHER = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, String> namesBySql = new HashMap<>();
+    private final Map<String, String> namesByTemplatePrefix = new LinkedHashMap<>();
+    // Timers by query name and exception, so a call doesn't go through the registry's builder and lookup
+    private final Map<String, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public QueryMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Field field : SqlQueries.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) continue;
+            try {
+                String sql = (String) field.get(null);
+                int placeholder = sql.indexOf("%s");
+                if (placeholder >= 0) {
+                    namesByTemplatePrefix.put(sql.substring(0, placeholder), field.getName());
+                } else {
+                    namesBySql.put(sql, field.getName());
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Around("execution(public * org.springframework.jdbc.core.JdbcTemplate.query*(..))"
+            + " || execution(public * org.springframework.jdbc.core.JdbcTemplate.update(..))"
+            + " || execution(public * org.springframework.jdbc.core.JdbcTemplate.batchUpdate(..))"
+            + " || execution(public * org.springframework.jdbc.core.JdbcTemplate.execute(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        String query = args.length == 0 ? OTHER : queryName(args[0]);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(timer(query, exception));
+        }
+    }
+
+    private Timer timer(String query, String exception) {
+        return timers.computeIfAbsent(query, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(exception, name -> Timer.builder(METRIC_NAME)
+                        .description("JdbcTemplate calls by SqlQueries constant")
+                        .tag("query", query)
+                        .tag("exception", exception)
+                        .register(meterRegistry));
+    }
+
+    String queryName(Object statement) {
+        String sql;
+        if (statement instanceof String) {
+            sql = (String) statement;
+        } else if (statement instanceof SqlProvider) {
+            sql = ((SqlProvider) statement).getSql();
+        } else {
+            return OTHER;
+        }
+        if (sql == null) return OTHER;
+        String name = namesBySql.get(sql);
+        if (name != null) return name;
+        for (Map.Entry<String, String> template : namesByTemplatePrefix.entrySet()) {
+            if (sql.startsWith(template.getKey())) return template.getValue();
+        }
+        return OTHER;
+    }
+}
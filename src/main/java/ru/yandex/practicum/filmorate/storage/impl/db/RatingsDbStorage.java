@@ -9,12 +9,17 @@ import ru.yandex.practicum.filmorate.storage.RatingStorage;
 import ru.yandex.practicum.filmorate.storage.impl.db.mapper.RatingMapper;
 import ru.yandex.practicum.filmorate.utility.SqlQueries;
 
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class RatingsDbStorage implements RatingStorage {
     private final JdbcTemplate jdbcTemplate;
+    private volatile Rating[] ratingsById = new Rating[0];
 
     public RatingsDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
@@ -22,16 +27,29 @@ public class RatingsDbStorage implements RatingStorage {
 
     @Override
     public List<Rating> getAllRatings() {
-        return jdbcTemplate.query(SqlQueries.GET_RATINGS, new RatingMapper());
+        return Arrays.stream(ratingsById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableList());
     }
 
     @Override
     public Rating getRatingById(int ratingId) {
-        Rating mpa = jdbcTemplate.query(SqlQueries.GET_RATING, new RatingMapper(), ratingId).stream().findAny().orElse(null);
+        Rating[] ratings = ratingsById;
+        Rating mpa = ratingId > 0 && ratingId < ratings.length ? ratings[ratingId] : null;
         if (mpa == null) {
             log.error("Rating with id {} doesn't exist", ratingId);
             throw new RatingNotFoundException("Rating with id " + ratingId + " doesn't exist");
         }
         return mpa;
     }
+
+    @Override
+    @PostConstruct
+    public void refresh() {
+        List<Rating> ratings = jdbcTemplate.query(SqlQueries.GET_RATINGS, new RatingMapper());
+        Rating[] loaded = new Rating[ratings.stream().mapToInt(Rating::getId).max().orElse(0) + 1];
+        ratings.forEach(rating -> loaded[rating.getId()] = rating);
+        ratingsById = loaded;
+        log.info("Loaded {} ratings", ratings.size());
+    }
 }
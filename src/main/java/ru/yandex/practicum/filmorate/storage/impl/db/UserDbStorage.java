@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.storage.impl.db;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.storage.impl.db.mapper.UserMapper;
@@ -13,19 +21,27 @@ import ru.yandex.practicum.filmorate.utility.SqlQueries;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
-import java.util.ArrayList;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Component("userDbStorage")
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int FRIENDS_BATCH_SIZE = 1000;
 
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
@@ -38,15 +54,17 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    // Write paths don't check ids up front: inserts rely on foreign keys and updates on row counts,
+    // and only a failed statement is followed by an existence probe to pick the right exception
     @Override
     public User updateUser(User user) {
-        checkUserById(user.getId());
-        jdbcTemplate.update(SqlQueries.UPDATE_USER,
+        int updated = jdbcTemplate.update(SqlQueries.UPDATE_USER,
                 user.getName(),
                 user.getLogin(),
                 user.getEmail(),
                 user.getBirthday(),
                 user.getId());
+        if (updated == 0) throwUserNotFound(user.getId());
         return user;
     }
 
@@ -60,58 +78,169 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    public boolean userExists(int userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SqlQueries.USER_EXISTS, Boolean.class, userId));
+    }
+
+    // All ids are passed as one array parameter, so the lookup is a single statement whatever the number of ids
+    @Override
+    public Set<Integer> getExistingUserIds(Collection<Integer> userIds) {
+        Set<Integer> existing = new HashSet<>();
+        if (userIds.isEmpty()) return existing;
+        jdbcTemplate.query(SqlQueries.GET_EXISTING_USER_IDS, stmt -> {
+            stmt.setArray(1, stmt.getConnection().createArrayOf("INTEGER", userIds.toArray()));
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+        }, (RowCallbackHandler) rs -> existing.add(rs.getInt("USER_ID")));
+        return existing;
+    }
+
     @Override
     public List<User> getUsers() {
         return jdbcTemplate.query(SqlQueries.GET_USERS, new UserMapper());
     }
 
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return jdbcTemplate.query(SqlQueries.GET_USERS_PAGE, new UserMapper(), afterId, limit);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        UserMapper userMapper = new UserMapper();
+        jdbcTemplate.query(SqlQueries.GET_USERS, stmt -> stmt.setFetchSize(STREAM_FETCH_SIZE), (RowCallbackHandler) rs -> consumer.accept(userMapper.mapRow(rs, rs.getRow())));
+    }
+
     @Override
     public List<User> getFriends(int userId) {
         return jdbcTemplate.query(SqlQueries.GET_FRIENDS, new UserMapper(), userId);
     }
 
     @Override
-    public void addFriend(int userId, int friendId) {
-        checkUserById(userId);
-        checkUserById(friendId);
-        jdbcTemplate.update(SqlQueries.ADD_FRIEND, userId, friendId);
+    public List<User> getFriends(int userId, int afterId, int limit) {
+        return jdbcTemplate.query(SqlQueries.GET_FRIENDS_PAGE, new UserMapper(), userId, afterId, limit);
     }
 
+    // A request is stored as PENDING and approved together with the reverse row if that one exists.
+    // Both user rows are locked first, so two crossing requests run one after the other and the later one
+    // sees both rows and approves them
     @Override
-    public void deleteFriend(int userId, int friendId) {
-        checkUserById(userId);
-        checkUserById(friendId);
-        jdbcTemplate.update(SqlQueries.DELETE_FRIEND, userId, friendId);
+    @Transactional
+    public boolean addFriend(int userId, int friendId) {
+        lockUsers(userId, friendId);
+        try {
+            boolean added = jdbcTemplate.update(SqlQueries.ADD_FRIEND, userId, friendId, userId, friendId) > 0;
+            if (added) jdbcTemplate.update(SqlQueries.CONFIRM_FRIENDSHIP, userId, friendId, friendId, userId);
+            return added;
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            checkUserById(userId);
+            checkUserById(friendId);
+            throw e;
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFriend(int userId, int friendId) {
+        lockUsers(userId, friendId);
+        int deleted = jdbcTemplate.update(SqlQueries.DELETE_FRIEND, userId, friendId);
+        if (deleted == 0) {
+            checkUserById(userId);
+            checkUserById(friendId);
+            return false;
+        }
+        jdbcTemplate.update(SqlQueries.UNCONFIRM_FRIENDSHIP, friendId, userId);
+        return true;
+    }
+
+    // Each chunk is one JDBC batch in its own transaction: a failure rolls back only the current chunk
+    // and a large import doesn't hold locks on FRIENDS until the very end
+    @Override
+    public int addFriends(List<Friendship> friendships) {
+        int added = 0;
+        for (int from = 0; from < friendships.size(); from += FRIENDS_BATCH_SIZE) {
+            List<Friendship> chunk = friendships.subList(from, Math.min(from + FRIENDS_BATCH_SIZE, friendships.size()));
+            int[] counts = transactionTemplate.execute(status -> {
+                int[] inserted = jdbcTemplate.batchUpdate(SqlQueries.ADD_FRIEND, friendshipSetter(chunk, false));
+                jdbcTemplate.batchUpdate(SqlQueries.CONFIRM_FRIENDSHIP, friendshipSetter(chunk, true));
+                return inserted;
+            });
+            added += Arrays.stream(counts).filter(count -> count > 0).count();
+        }
+        return added;
+    }
+
+    @Override
+    public List<User> getConfirmedFriends(int userId) {
+        List<User> friends = jdbcTemplate.query(SqlQueries.GET_CONFIRMED_FRIENDS, new UserMapper(), userId);
+        if (friends.isEmpty()) checkUserById(userId);
+        return friends;
     }
 
+    // Common friends are the intersection of the two friend lists, and those include pending requests
+    // just like GET /users/{id}/friends does
     @Override
     public List<User> getCommonFriends(int userId, int otherId) {
-        Set<User> userFriends = new HashSet<>(jdbcTemplate.query(SqlQueries.GET_FRIENDS, new UserMapper(), userId));
-        Set<User> otherFriends = new HashSet<>(jdbcTemplate.query(SqlQueries.GET_FRIENDS, new UserMapper(), otherId));
+        return jdbcTemplate.query(SqlQueries.GET_COMMON_FRIENDS, new UserMapper(), userId, otherId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId, int afterId, int limit) {
+        return jdbcTemplate.query(SqlQueries.GET_COMMON_FRIENDS_PAGE, new UserMapper(), userId, otherId, afterId, limit);
+    }
 
-        Set<User> intersection = new HashSet<>(userFriends);
-        intersection.retainAll(otherFriends);
+    // Both hops are capped: at most maxFanout friends are expanded, confirmed ones first, and each of them
+    // contributes at most its maxFanout lowest friend ids. The cutoff id of every expanded friend turns
+    // the second hop into a bounded index range, so the join reads at most maxFanout^2 rows
+    @Override
+    public List<User> getFriendSuggestions(int userId, int maxFanout, int limit) {
+        checkUserById(userId);
+        return jdbcTemplate.query(SqlQueries.GET_FRIEND_SUGGESTIONS, new UserMapper(),
+                maxFanout - 1, userId, maxFanout, userId, userId, limit);
+    }
+
+    // ADD_FRIEND takes (user, friend, user, friend), CONFIRM_FRIENDSHIP takes (user, friend, friend, user)
+    private BatchPreparedStatementSetter friendshipSetter(List<Friendship> friendships, boolean bothDirections) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Friendship friendship = friendships.get(i);
+                ps.setInt(1, friendship.getUserId());
+                ps.setInt(2, friendship.getFriendId());
+                ps.setInt(3, bothDirections ? friendship.getFriendId() : friendship.getUserId());
+                ps.setInt(4, bothDirections ? friendship.getUserId() : friendship.getFriendId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return friendships.size();
+            }
+        };
+    }
 
-        return new ArrayList<>(intersection);
+    // Rows are locked in id order, so concurrent changes of the same pair can't deadlock
+    private void lockUsers(int userId, int friendId) {
+        jdbcTemplate.queryForList(SqlQueries.LOCK_FRIENDSHIP_USERS, Integer.class, userId, friendId);
     }
 
     private void checkUserById(int userId) {
-        if (getUserById(userId) == null) {
-            log.error("User with id {} doesn't exist", userId);
-            throw new UserNotFoundException("User with id " + userId + " doesn't exist");
-        }
+        if (!userExists(userId)) throwUserNotFound(userId);
+    }
+
+    private void throwUserNotFound(int userId) {
+        log.error("User with id {} doesn't exist", userId);
+        throw new UserNotFoundException("User with id " + userId + " doesn't exist");
     }
 
     private void addUserToDb(User user) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(SqlQueries.ADD_USER, new String[]{"USER_ID"});
-            stmt.setString(1, user.getName());
-            stmt.setString(2, user.getLogin());
-            stmt.setString(3, user.getEmail());
-            stmt.setDate(4, Date.valueOf(user.getBirthday()));
-            return stmt;
-        }, keyHolder);
+        PreparedStatementCreatorFactory statement = new PreparedStatementCreatorFactory(SqlQueries.ADD_USER,
+                Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DATE);
+        statement.setGeneratedKeysColumnNames("USER_ID");
+        jdbcTemplate.update(statement.newPreparedStatementCreator(Arrays.asList(
+                user.getName(), user.getLogin(), user.getEmail(), Date.valueOf(user.getBirthday()))), keyHolder);
         user.setId(keyHolder.getKey().intValue());
     }
 
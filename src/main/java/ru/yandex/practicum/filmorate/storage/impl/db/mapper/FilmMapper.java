@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.impl.db.mapper;
 
 import org.springframework.jdbc.core.RowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
 
 import java.sql.Date;
 import java.sql.ResultSet;
@@ -17,6 +18,7 @@ public class FilmMapper implements RowMapper<Film> {
                 .description(rs.getString("DESCRIPTION"))
                 .releaseDate(Date.valueOf(rs.getString("RELEASE_DATE")).toLocalDate())
                 .duration(rs.getInt("DURATION"))
+                .mpa(Rating.builder().id(rs.getInt("RATING_ID")).build())
                 .build();
     }
 }
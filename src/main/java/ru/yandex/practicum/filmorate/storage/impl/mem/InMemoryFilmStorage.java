@@ -6,18 +6,29 @@ import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.utility.StripedLocks;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component("inMemoryFilmStorage")
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private static int id = 0;
-    private final Map<Integer, Film> films = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+
+    private final AtomicInteger id = new AtomicInteger();
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    // Guards the like sets of films
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
     private final InMemoryUserStorage inMemoryUserStorage;
 
     public InMemoryFilmStorage(InMemoryUserStorage inMemoryUserStorage) {
@@ -30,32 +41,72 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
+    public List<Film> getFilms(int afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        films.values().forEach(consumer);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
         checkFilmAndUserIds(filmId, userId);
-        getFilmById(filmId).addLike(userId);
+        return locks.write(filmId, () -> films.get(filmId).addLike(userId));
     }
 
     @Override
-    public void deleteLike(int filmId, int userId) {
+    public boolean deleteLike(int filmId, int userId) {
         checkFilmAndUserIds(filmId, userId);
-        getFilmById(filmId).deleteLike(userId);
+        return locks.write(filmId, () -> films.get(filmId).deleteLike(userId));
     }
 
+    // Counts are read once under the stripe locks before sorting, so concurrent likes can't change them mid-sort
     @Override
-    public List<Film> getPopularFilms(int count) {
+    public List<Film> getPopularFilms(int count, int from) {
+        Map<Integer, Integer> likesCounts = getLikesCounts();
         return films.values().stream()
-                .sorted((film1, film2) -> compare(film1, film2))
+                .sorted(Comparator.comparingInt((Film film) -> likesCounts.getOrDefault(film.getId(), 0)).reversed())
+                .skip(from)
                 .limit(count)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        return films.values().stream()
+                .collect(Collectors.toMap(Film::getId, film -> locks.read(film.getId(), film.getLikes()::size)));
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        films.values().forEach(film -> {
+            int[] userIds = locks.read(film.getId(), film.getLikes()::toArray);
+            for (int userId : userIds) {
+                consumer.accept(film.getId(), userId);
+            }
+        });
+    }
+
     @Override
     public Film getFilmById(int filmId) {
-        if (!films.containsKey(filmId)) {
+        Film film = films.get(filmId);
+        if (film == null) {
             log.error("Film with id {} doesn't exist", filmId);
             throw new FilmNotFoundException("Film with id " + filmId + " doesn't exist");
         }
-        return this.films.get(filmId);
+        return film;
     }
 
     @Override
@@ -64,25 +115,31 @@ public class InMemoryFilmStorage implements FilmStorage {
             log.error("Film with id {} already exists", film.getId());
             throw new ValidationException("Film with id " + film.getId() + " already exists");
         }
-        film.setId(++id);
-        films.put(id, film);
+        film.setId(id.incrementAndGet());
+        films.put(film.getId(), film);
         return film;
     }
 
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        films.forEach(this::createFilm);
+        return films;
+    }
+
     @Override
     public Film updateFilm(Film film) {
         if (!films.containsKey(film.getId())) {
             log.error("Film with id {} doesn't exist", film.getId());
             throw new FilmNotFoundException("Film with id " + film.getId() + " doesn't exist");
         }
-        films.put(film.getId(), film);
+        // The new film object takes over the like set, so likes added concurrently aren't lost
+        locks.write(film.getId(), () -> {
+            films.get(film.getId()).getLikes().forEach(film::addLike);
+            films.put(film.getId(), film);
+        });
         return film;
     }
 
-    private int compare(Film film1, Film film2) {
-        return Integer.compare(film2.getLikes().size(), film1.getLikes().size());
-    }
-
     private void checkFilmAndUserIds(int filmId, int userId) {
         if (!films.containsKey(filmId)) {
             log.error("Film with id {} doesn't exist.", filmId);
@@ -4,17 +4,36 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.utility.IntSortedSet;
+import ru.yandex.practicum.filmorate.utility.StripedLocks;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Component("inMemoryUserStorage")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private static int id = 0;
-    private final Map<Integer, User> users = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+
+    private final AtomicInteger id = new AtomicInteger();
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    // Guards the friend sets of users, both sides of a friendship are changed under one pair of locks
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
 
     @Override
     public List<User> getUsers() {
@@ -22,47 +41,121 @@ public class InMemoryUserStorage implements UserStorage {
     }
 
     @Override
-    public void addFriend(int userId, int friendId) {
+    public List<User> getUsers(int afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        users.values().forEach(consumer);
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
         checkUserIds(userId, friendId);
-        getUserById(userId).addFriend(friendId);
-        getUserById(friendId).addFriend(userId);
+        return locks.write(userId, friendId, () -> {
+            users.get(friendId).addFriend(userId);
+            return users.get(userId).addFriend(friendId);
+        });
     }
 
     @Override
-    public void deleteFriend(int userId, int friendId) {
+    public boolean deleteFriend(int userId, int friendId) {
         checkUserIds(userId, friendId);
-        getUserById(userId).deleteFriend(friendId);
-        getUserById(friendId).deleteFriend(userId);
+        return locks.write(userId, friendId, () -> {
+            users.get(friendId).deleteFriend(userId);
+            return users.get(userId).deleteFriend(friendId);
+        });
+    }
+
+    @Override
+    public int addFriends(List<Friendship> friendships) {
+        int added = 0;
+        for (Friendship friendship : friendships) {
+            if (addFriend(friendship.getUserId(), friendship.getFriendId())) added++;
+        }
+        return added;
+    }
+
+    // Friendships are always added to both users here, the filter keeps the contract of the database storage
+    @Override
+    public List<User> getConfirmedFriends(int userId) {
+        return toUsers(Arrays.stream(friendIds(userId))
+                .filter(friendId -> Arrays.binarySearch(friendIds(friendId), userId) >= 0)
+                .toArray());
     }
 
     @Override
     public List<User> getCommonFriends(int userId, int otherId) {
-        Set<Long> userFriends = getUserById(userId).getFriends();
-        Set<Long> otherUserFriends = getUserById(otherId).getFriends();
+        return getCommonFriends(userId, otherId, 0, Integer.MAX_VALUE);
+    }
 
-        Set<Long> intersection = new HashSet<>(userFriends);
-        intersection.retainAll(otherUserFriends);
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId, int afterId, int limit) {
+        IntSortedSet userFriends = getUserById(userId).getFriends();
+        IntSortedSet otherUserFriends = getUserById(otherId).getFriends();
+        IntSortedSet smaller = userFriends.size() <= otherUserFriends.size() ? userFriends : otherUserFriends;
+        IntSortedSet larger = smaller == userFriends ? otherUserFriends : userFriends;
 
-        return getUsers().stream()
-                .filter(user -> intersection.contains((long) user.getId()))
+        int[] commonIds = locks.read(userId, otherId, () -> smaller.tailStream(afterId)
+                .filter(larger::contains)
+                .limit(limit)
+                .toArray());
+        return toUsers(commonIds);
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int maxFanout, int limit) {
+        IntSortedSet friends = IntSortedSet.of(friendIds(userId));
+        Map<Integer, Integer> mutualCounts = new HashMap<>();
+        // Same caps as the database storage: confirmed friends first, then the lowest ids of each friend's friends
+        IntStream.concat(
+                        friends.stream().filter(friendId -> isFriend(friendId, userId)),
+                        friends.stream().filter(friendId -> !isFriend(friendId, userId)))
+                .limit(maxFanout)
+                .forEach(friendId -> Arrays.stream(firstFriendIds(friendId, maxFanout))
+                        .filter(candidateId -> candidateId != userId && !friends.contains(candidateId))
+                        .forEach(candidateId -> mutualCounts.merge(candidateId, 1, Integer::sum)));
+        return mutualCounts.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> users.get(entry.getKey()))
                 .collect(Collectors.toList());
     }
 
     @Override
     public User getUserById(int userId) {
-        if (!users.containsKey(userId)) {
+        User user = users.get(userId);
+        if (user == null) {
             log.error("User with id {} doesn't exist", userId);
             throw new UserNotFoundException("User with id " + userId + " doesn't exist");
         }
-        return this.users.get(userId);
+        return user;
+    }
+
+    @Override
+    public boolean userExists(int userId) {
+        return users.containsKey(userId);
+    }
+
+    @Override
+    public Set<Integer> getExistingUserIds(Collection<Integer> userIds) {
+        return userIds.stream()
+                .filter(users::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
     public List<User> getFriends(int userId) {
-        Set<Long> friendsIds = getUserById(userId).getFriends();
-        return getUsers().stream()
-                .filter(user -> friendsIds.contains((long) user.getId()))
-                .collect(Collectors.toList());
+        return toUsers(friendIds(userId));
+    }
+
+    @Override
+    public List<User> getFriends(int userId, int afterId, int limit) {
+        IntSortedSet friends = getUserById(userId).getFriends();
+        return toUsers(locks.read(userId, () -> friends.tailStream(afterId).limit(limit).toArray()));
     }
 
     @Override
@@ -75,8 +168,8 @@ public class InMemoryUserStorage implements UserStorage {
             log.error("User name empty. Set user name {}", user.getLogin());
             user.setName(user.getLogin());
         }
-        user.setId(++id);
-        users.put(id, user);
+        user.setId(id.incrementAndGet());
+        users.put(user.getId(), user);
         return user;
     }
 
@@ -86,10 +179,36 @@ public class InMemoryUserStorage implements UserStorage {
             log.error("User with id {} doesn't exist", user.getId());
             throw new UserNotFoundException("User with id " + user.getId() + " doesn't exist");
         }
-        users.put(user.getId(), user);
+        // The new user object takes over the friend set, so friendships added concurrently aren't lost
+        locks.write(user.getId(), () -> {
+            users.get(user.getId()).getFriends().forEach(user::addFriend);
+            users.put(user.getId(), user);
+        });
         return user;
     }
 
+    private int[] friendIds(int userId) {
+        IntSortedSet friends = getUserById(userId).getFriends();
+        return locks.read(userId, friends::toArray);
+    }
+
+    private int[] firstFriendIds(int userId, int limit) {
+        IntSortedSet friends = getUserById(userId).getFriends();
+        return locks.read(userId, () -> friends.stream().limit(limit).toArray());
+    }
+
+    private boolean isFriend(int userId, int friendId) {
+        IntSortedSet friends = getUserById(userId).getFriends();
+        return locks.read(userId, () -> friends.contains(friendId));
+    }
+
+    private List<User> toUsers(int[] userIds) {
+        return Arrays.stream(userIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     private void checkUserIds(int userId, int friendId) {
         if (!users.containsKey(userId)) {
             log.error("User with id {} doesn't exist.", userId);
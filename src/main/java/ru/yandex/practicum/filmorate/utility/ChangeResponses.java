@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.utility;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.http.ResponseEntity;
+
+@UtilityClass
+public final class ChangeResponses {
+    // Idempotent requests answer 200 when they changed something and 204 when there was nothing to change
+    public static ResponseEntity<Void> of(boolean changed) {
+        return changed ? ResponseEntity.ok().build() : ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.utility;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Set of ints kept as a sorted primitive array: 4 bytes per element instead of a boxed value and a hash node.
+ * Lookups are binary searches, inserts and removals shift the tail, which is cheap for adjacency lists
+ * of users and films. Serialized to JSON as a plain array.
+ */
+public class IntSortedSet {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values = EMPTY;
+    private int size;
+
+    @JsonCreator
+    public static IntSortedSet of(int... values) {
+        IntSortedSet set = new IntSortedSet();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public boolean add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) return false;
+        int insertAt = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) return false;
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(values[i]);
+        }
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(values, 0, size);
+    }
+
+    // Values greater than the given one, in ascending order
+    public IntStream tailStream(int afterValue) {
+        int index = Arrays.binarySearch(values, 0, size, afterValue);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        return Arrays.stream(values, from, size);
+    }
+
+    @JsonValue
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntSortedSet)) return false;
+        IntSortedSet other = (IntSortedSet) o;
+        return Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + values[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.utility;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+@UtilityClass
+public final class LogSummaries {
+    public static final int MAX_IDS = 20;
+
+    // Log argument that prints at most MAX_IDS ids of the list, built only if the message is actually logged
+    public static <T> Object ids(List<T> items, ToIntFunction<T> id) {
+        return new Object() {
+            @Override
+            public String toString() {
+                StringBuilder sb = new StringBuilder("[");
+                int shown = Math.min(items.size(), MAX_IDS);
+                for (int i = 0; i < shown; i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(id.applyAsInt(items.get(i)));
+                }
+                if (items.size() > shown) sb.append(", ... ").append(items.size() - shown).append(" more");
+                return sb.append("]").toString();
+            }
+        };
+    }
+}
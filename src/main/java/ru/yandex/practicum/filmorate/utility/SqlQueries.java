@@ -7,37 +7,62 @@ public final class SqlQueries {
 
     // APP_USERS
     public static final String GET_USERS = "SELECT * FROM APP_USERS";
+    public static final String GET_USERS_PAGE = "SELECT * FROM APP_USERS WHERE USER_ID > ? ORDER BY USER_ID LIMIT ?";
     public static final String GET_USER = "SELECT * FROM APP_USERS WHERE USER_ID = ?";
+    public static final String USER_EXISTS = "SELECT EXISTS (SELECT 1 FROM APP_USERS WHERE USER_ID = ?)";
+    public static final String GET_EXISTING_USER_IDS = "SELECT USER_ID FROM APP_USERS WHERE USER_ID = ANY(?)";
     public static final String ADD_USER = "INSERT INTO APP_USERS (USER_NAME, LOGIN, EMAIL, BIRTHDAY) VALUES(?, ?, ?, ?)";
     public static final String UPDATE_USER = "UPDATE APP_USERS SET USER_NAME = ?, LOGIN = ?, EMAIL = ?, BIRTHDAY = ? WHERE USER_ID = ?";
 
     // FRIENDS
     public static final String GET_FRIENDS = "SELECT * FROM APP_USERS au JOIN FRIENDS f ON au.USER_ID = f.USER_TWO_ID WHERE f.USER_ONE_ID = ?";
-    public static final String ADD_FRIEND = "INSERT INTO FRIENDS (USER_ONE_ID, USER_TWO_ID) VALUES (?, ?)";
+    public static final String GET_FRIENDS_PAGE = "SELECT au.* FROM FRIENDS f JOIN APP_USERS au ON au.USER_ID = f.USER_TWO_ID WHERE f.USER_ONE_ID = ? AND f.USER_TWO_ID > ? ORDER BY f.USER_TWO_ID LIMIT ?";
+    public static final String ADD_FRIEND = "INSERT INTO FRIENDS (USER_ONE_ID, USER_TWO_ID) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM FRIENDS WHERE USER_ONE_ID = ? AND USER_TWO_ID = ?)";
     public static final String DELETE_FRIEND = "DELETE FROM FRIENDS WHERE USER_ONE_ID = ? AND USER_TWO_ID = ?";
+    public static final String CONFIRM_FRIENDSHIP = "UPDATE FRIENDS f SET STATUS = 'APPROVE' "
+            + "WHERE ((f.USER_ONE_ID = ? AND f.USER_TWO_ID = ?) OR (f.USER_ONE_ID = ? AND f.USER_TWO_ID = ?)) AND f.STATUS = 'PENDING' "
+            + "AND EXISTS (SELECT 1 FROM FRIENDS r WHERE r.USER_ONE_ID = f.USER_TWO_ID AND r.USER_TWO_ID = f.USER_ONE_ID)";
+    public static final String LOCK_FRIENDSHIP_USERS = "SELECT USER_ID FROM APP_USERS WHERE USER_ID IN (?, ?) ORDER BY USER_ID FOR UPDATE";
+    public static final String UNCONFIRM_FRIENDSHIP = "UPDATE FRIENDS SET STATUS = 'PENDING' WHERE USER_ONE_ID = ? AND USER_TWO_ID = ? AND STATUS = 'APPROVE'";
+    public static final String GET_CONFIRMED_FRIENDS = "SELECT au.* FROM FRIENDS f JOIN APP_USERS au ON au.USER_ID = f.USER_TWO_ID WHERE f.USER_ONE_ID = ? AND f.STATUS = 'APPROVE' ORDER BY f.USER_TWO_ID";
+    public static final String GET_FRIEND_SUGGESTIONS = "SELECT au.* FROM ("
+            + "SELECT f2.USER_TWO_ID AS CANDIDATE_ID, COUNT(*) AS MUTUAL "
+            + "FROM (SELECT fr.FRIEND_ID, COALESCE((SELECT c.USER_TWO_ID FROM FRIENDS c WHERE c.USER_ONE_ID = fr.FRIEND_ID "
+            + "ORDER BY c.USER_TWO_ID OFFSET ? ROWS FETCH NEXT 1 ROW ONLY), 2147483647) AS LAST_ID "
+            + "FROM (SELECT USER_TWO_ID AS FRIEND_ID FROM FRIENDS WHERE USER_ONE_ID = ? ORDER BY STATUS, USER_TWO_ID LIMIT ?) fr) f1 "
+            + "JOIN FRIENDS f2 ON f2.USER_ONE_ID = f1.FRIEND_ID AND f2.USER_TWO_ID <= f1.LAST_ID "
+            + "WHERE f2.USER_TWO_ID <> ? "
+            + "AND NOT EXISTS (SELECT 1 FROM FRIENDS f3 WHERE f3.USER_ONE_ID = ? AND f3.USER_TWO_ID = f2.USER_TWO_ID) "
+            + "GROUP BY f2.USER_TWO_ID ORDER BY MUTUAL DESC, CANDIDATE_ID LIMIT ?"
+            + ") s JOIN APP_USERS au ON au.USER_ID = s.CANDIDATE_ID ORDER BY s.MUTUAL DESC, au.USER_ID";
+    public static final String GET_COMMON_FRIENDS = "SELECT au.* FROM FRIENDS f1 JOIN FRIENDS f2 ON f2.USER_TWO_ID = f1.USER_TWO_ID JOIN APP_USERS au ON au.USER_ID = f1.USER_TWO_ID WHERE f1.USER_ONE_ID = ? AND f2.USER_ONE_ID = ? ORDER BY au.USER_ID";
+    public static final String GET_COMMON_FRIENDS_PAGE = "SELECT au.* FROM FRIENDS f1 JOIN FRIENDS f2 ON f2.USER_TWO_ID = f1.USER_TWO_ID JOIN APP_USERS au ON au.USER_ID = f1.USER_TWO_ID WHERE f1.USER_ONE_ID = ? AND f2.USER_ONE_ID = ? AND f1.USER_TWO_ID > ? ORDER BY au.USER_ID LIMIT ?";
 
     // FILMS
-    public static final String GET_FILMS = "SELECT * FROM FILMS";
-    public static final String GET_FILM = "SELECT * FROM FILMS f WHERE FILM_ID = ?";
-    public static final String GET_FILM_RATING = "SELECT r.RATING_ID, r.RATING_NAME FROM RATINGS r JOIN FILMS f ON r.RATING_ID = f.RATING_ID WHERE f.FILM_ID = ?";
-    public static final String GET_FILM_GENRES = "SELECT g.GENRE_ID, g.GENRE_NAME FROM GENRES g JOIN FILMS_GENRES fg ON g.GENRE_ID = fg.GENRE_ID JOIN FILMS f ON fg.FILM_ID = f.FILM_ID WHERE f.FILM_ID = ?";
+    public static final String GET_FILMS = "SELECT * FROM FILMS ORDER BY FILM_ID";
+    public static final String GET_FILMS_PAGE = "SELECT * FROM FILMS WHERE FILM_ID > ? ORDER BY FILM_ID LIMIT ?";
+    public static final String GET_FILMS_WITH_GENRE_IDS = "SELECT f.*, fg.GENRE_ID FROM FILMS f LEFT JOIN FILMS_GENRES fg ON f.FILM_ID = fg.FILM_ID ORDER BY f.FILM_ID, fg.GENRE_ID";
+    public static final String GET_FILM = "SELECT * FROM FILMS WHERE FILM_ID = ?";
+    public static final String FILM_EXISTS = "SELECT EXISTS (SELECT 1 FROM FILMS WHERE FILM_ID = ?)";
+    public static final String GET_FILMS_BY_IDS = "SELECT * FROM FILMS WHERE FILM_ID IN (%s)";
     public static final String ADD_FILM = "INSERT INTO FILMS (FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID) VALUES (?, ?, ?, ?, ?)";
     public static final String UPDATE_FILM = "UPDATE FILMS SET FILM_NAME = ?, DESCRIPTION = ?, RELEASE_DATE = ?, DURATION = ?, RATING_ID = ? WHERE FILM_ID = ?";
     public static final String ADD_FILMS_GENRES = "INSERT INTO FILMS_GENRES (FILM_ID, GENRE_ID) VALUES (?, ?)";
     public static final String DELETE_FILMS_GENRES = "DELETE FROM FILMS_GENRES WHERE FILM_ID = ?";
-    public static final String GET_GENRES_FOR_ALL_FILMS = "SELECT * FROM FILMS_GENRES fg JOIN GENRES g ON fg.GENRE_ID = g.GENRE_ID";
-    public static final String GET_RATINGS_FOR_ALL_FILMS = "SELECT * FROM FILMS f JOIN RATINGS r ON f.RATING_ID = r.RATING_ID";
+    public static final String GET_GENRES_FOR_ALL_FILMS = "SELECT FILM_ID, GENRE_ID FROM FILMS_GENRES ORDER BY FILM_ID, GENRE_ID";
+    public static final String GET_GENRES_FOR_FILMS = "SELECT FILM_ID, GENRE_ID FROM FILMS_GENRES WHERE FILM_ID IN (%s) ORDER BY FILM_ID, GENRE_ID";
 
     // LIKES
-    public static final String ADD_LIKE = "INSERT INTO LIKES (FILM_ID, USER_ID) VALUES (?, ?)";
+    public static final String ADD_LIKE = "INSERT INTO LIKES (FILM_ID, USER_ID) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?)";
     public static final String DELETE_LIKE = "DELETE FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?";
-    public static final String GET_POPULAR_FILMS = "SELECT * FROM FILMS f LEFT JOIN (SELECT l.FILM_ID, COUNT(l.USER_ID) AS likes_count FROM LIKES l GROUP BY l.FILM_ID) temp ON f.FILM_ID = temp.FILM_ID ORDER BY temp.LIKES_COUNT DESC;";
+    public static final String GET_LIKES = "SELECT FILM_ID, USER_ID FROM LIKES";
+    public static final String GET_LIKES_COUNTS = "SELECT FILM_ID, LIKES_COUNT FROM FILMS";
+    public static final String UPDATE_LIKES_COUNT = "UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + ? WHERE FILM_ID = ?";
+    public static final String GET_POPULAR_FILMS = "SELECT * FROM FILMS ORDER BY LIKES_COUNT DESC, FILM_ID LIMIT ? OFFSET ?";
 
     // RATINGS
-    public static final String GET_RATINGS = "SELECT * FROM RATINGS";
-    public static final String GET_RATING = "SELECT * FROM RATINGS WHERE RATING_ID = ?";
+    public static final String GET_RATINGS = "SELECT * FROM RATINGS ORDER BY RATING_ID";
 
     // GENRES
-    public static final String GET_GENRES = "SELECT * FROM GENRES";
-    public static final String GET_GENRE = "SELECT * FROM GENRES WHERE GENRE_ID = ?";
+    public static final String GET_GENRES = "SELECT * FROM GENRES ORDER BY GENRE_ID";
 }
\ No newline at end of file
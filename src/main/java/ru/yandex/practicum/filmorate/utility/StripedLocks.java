@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.utility;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of read-write locks shared by ids, so that updates of different entities rarely contend
+ * and there is no lock object per entity. Two ids are always locked in stripe order to avoid deadlocks.
+ */
+public class StripedLocks {
+    private final ReadWriteLock[] locks;
+
+    public StripedLocks(int stripes) {
+        this.locks = new ReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public <T> T read(int id, Supplier<T> action) {
+        Lock lock = stripe(id).readLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T read(int id1, int id2, Supplier<T> action) {
+        return locked(stripe(id1).readLock(), stripe(id2).readLock(), id1, id2, action);
+    }
+
+    public <T> T write(int id, Supplier<T> action) {
+        Lock lock = stripe(id).writeLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void write(int id, Runnable action) {
+        write(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T write(int id1, int id2, Supplier<T> action) {
+        return locked(stripe(id1).writeLock(), stripe(id2).writeLock(), id1, id2, action);
+    }
+
+    private <T> T locked(Lock lock1, Lock lock2, int id1, int id2, Supplier<T> action) {
+        boolean inOrder = index(id1) <= index(id2);
+        Lock first = inOrder ? lock1 : lock2;
+        Lock second = inOrder ? lock2 : lock1;
+        first.lock();
+        try {
+            second.lock();
+            try {
+                return action.get();
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    private ReadWriteLock stripe(int id) {
+        return locks[index(id)];
+    }
+
+    private int index(int id) {
+        return Math.floorMod(id, locks.length);
+    }
+}
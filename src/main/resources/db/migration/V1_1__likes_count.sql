@@ -0,0 +1,4 @@
+-- Likes are counted on the film row so that the popular films are read from an index instead of aggregating LIKES
+ALTER TABLE FILMS ADD COLUMN LIKES_COUNT INTEGER NOT NULL DEFAULT 0;
+UPDATE FILMS f SET LIKES_COUNT = (SELECT COUNT(*) FROM LIKES l WHERE l.FILM_ID = f.FILM_ID);
+CREATE INDEX FILMS_LIKES_COUNT_IDX ON FILMS (LIKES_COUNT DESC, FILM_ID);
@@ -0,0 +1,83 @@
+
+DROP TABLE IF EXISTS APP_USERS CASCADE;
+CREATE TABLE APP_USERS (
+	USER_ID INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,
+	USER_NAME CHARACTER VARYING(45),
+	LOGIN CHARACTER VARYING(45) NOT NULL,
+	EMAIL CHARACTER VARYING(45) NOT NULL,
+	BIRTHDAY DATE NOT NULL
+);
+
+DROP TABLE IF EXISTS RATINGS CASCADE;
+CREATE TABLE RATINGS (
+	RATING_ID INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,
+	RATING_NAME CHARACTER VARYING(25) NOT NULL
+);
+
+DROP TABLE IF EXISTS FILMS CASCADE;
+CREATE TABLE FILMS (
+	FILM_ID INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,
+	FILM_NAME CHARACTER VARYING(45) NOT NULL,
+	DESCRIPTION CHARACTER VARYING(200) NOT NULL,
+	RELEASE_DATE DATE NOT NULL,
+	DURATION INTEGER NOT NULL,
+	RATING_ID INTEGER NOT NULL REFERENCES RATINGS(RATING_ID) ON DELETE CASCADE
+);
+
+DROP TABLE IF EXISTS GENRES CASCADE;
+CREATE TABLE GENRES (
+	GENRE_ID INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,
+	GENRE_NAME CHARACTER VARYING(25) NOT NULL
+);
+
+DROP TABLE IF EXISTS FILMS_GENRES CASCADE;
+CREATE TABLE FILMS_GENRES (
+	FILM_ID INTEGER NOT NULL REFERENCES FILMS(FILM_ID) ON DELETE CASCADE,
+	GENRE_ID INTEGER NOT NULL REFERENCES GENRES(GENRE_ID) ON DELETE CASCADE
+);
+
+DROP TABLE IF EXISTS LIKES CASCADE;
+CREATE TABLE LIKES (
+	FILM_ID INTEGER NOT NULL REFERENCES FILMS(FILM_ID) ON DELETE CASCADE,
+	USER_ID INTEGER NOT NULL REFERENCES APP_USERS(USER_ID) ON DELETE CASCADE
+);
+
+DROP TABLE IF EXISTS FRIENDS CASCADE;
+CREATE TABLE FRIENDS (
+	USER_ONE_ID INTEGER NOT NULL REFERENCES APP_USERS(USER_ID) ON DELETE CASCADE,
+	USER_TWO_ID INTEGER NOT NULL REFERENCES APP_USERS(USER_ID) ON DELETE CASCADE
+);
+
+--INSERT INTO APP_USERS (USER_NAME, LOGIN, EMAIL, BIRTHDAY)
+--VALUES  ('Mark', 	'marklogin', 	'mark@email.com', 	'1992-01-02'),
+--        ('Ben', 	'benlogin', 	'ben@email.com', 	'1995-02-04'),
+--        ('Clark',	'clarklogin', 	'clark@email.com', 	'1997-04-06'),
+--        ('Joe', 	'joelogin', 	'joe@email.com', 	'2000-06-10'),
+--        ('John', 	'johnlogin', 	'john@email.com', 	'2001-08-12');
+
+INSERT INTO RATINGS (RATING_NAME)
+VALUES  ('G'), ('PG'), ('PG-13'), ('R'), ('NC-17');
+
+--INSERT INTO FILMS (FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID)
+--VALUES  ('Titanic', 	'Nothing on Earth can separate them', 		'1997-11-01', 	194,    3),
+--        ('Avatar', 		'This is the new world', 					'2009-12-17', 	162,    3),
+--        ('Fight Club', 	'Intrigue. Chaos. Soap', 					'1999-09-11', 	139,    4),
+--        ('Paddington', 	'Please look after this bear. Thank you', 	'2014-11-23', 	95,     2),
+--        ('The Holiday', 'Cheerful love comedy', 					'2006-12-07', 	136,    3);
+
+INSERT INTO GENRES (GENRE_NAME)
+VALUES  ('Комедия'), ('Драма'), ('Мультфильм'),
+        ('Триллер'), ('Документальный'), ('Боевик');
+
+--INSERT INTO FILMS_GENRES (FILM_ID, GENRE_ID)
+--VALUES 	(1, 2), (2, 2), (2, 6), (3, 4), (3, 6),
+--        (4, 1), (4, 3), (1, 5), (5, 1), (5, 2);
+--
+--INSERT INTO LIKES (FILM_ID, USER_ID)
+--VALUES  (1, 1), (1, 2), (1, 3), (2, 1), (2, 3),
+--        (2, 4), (2, 5), (3, 5), (4, 1), (4, 3);
+
+--INSERT INTO FRIENDS (USER_ONE_ID, USER_TWO_ID, STATUS)
+--VALUES  (1, 2, 'PENDING'), (1, 3, 'APPROVE'), (2, 3, 'PENDING'),
+--        (2, 4, 'APPROVE'), (2, 5, 'PENDING'), (3, 4, 'PENDING'),
+--        (4, 1, 'APPROVE'), (4, 5, 'PENDING'), (5, 1, 'APPROVE');
\ No newline at end of file
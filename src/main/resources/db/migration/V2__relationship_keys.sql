@@ -0,0 +1,22 @@
+-- Duplicate relationship rows have to go before the primary keys can be added
+DELETE FROM LIKES l WHERE EXISTS (
+	SELECT 1 FROM LIKES d WHERE d.FILM_ID = l.FILM_ID AND d.USER_ID = l.USER_ID AND d._ROWID_ < l._ROWID_
+);
+DELETE FROM FRIENDS f WHERE EXISTS (
+	SELECT 1 FROM FRIENDS d WHERE d.USER_ONE_ID = f.USER_ONE_ID AND d.USER_TWO_ID = f.USER_TWO_ID AND d._ROWID_ < f._ROWID_
+);
+DELETE FROM FILMS_GENRES fg WHERE EXISTS (
+	SELECT 1 FROM FILMS_GENRES d WHERE d.FILM_ID = fg.FILM_ID AND d.GENRE_ID = fg.GENRE_ID AND d._ROWID_ < fg._ROWID_
+);
+
+ALTER TABLE LIKES ADD CONSTRAINT LIKES_PK PRIMARY KEY (FILM_ID, USER_ID);
+CREATE INDEX LIKES_USER_IDX ON LIKES (USER_ID);
+
+ALTER TABLE FRIENDS ADD CONSTRAINT FRIENDS_PK PRIMARY KEY (USER_ONE_ID, USER_TWO_ID);
+CREATE INDEX FRIENDS_USER_TWO_IDX ON FRIENDS (USER_TWO_ID);
+
+ALTER TABLE FILMS_GENRES ADD CONSTRAINT FILMS_GENRES_PK PRIMARY KEY (FILM_ID, GENRE_ID);
+CREATE INDEX FILMS_GENRES_GENRE_IDX ON FILMS_GENRES (GENRE_ID);
+
+-- Like counters could have been inflated by the duplicates
+UPDATE FILMS f SET LIKES_COUNT = (SELECT COUNT(*) FROM LIKES l WHERE l.FILM_ID = f.FILM_ID);
@@ -0,0 +1,10 @@
+-- A request stays PENDING until the other user sends one back, then both rows are APPROVE
+ALTER TABLE FRIENDS ADD COLUMN STATUS VARCHAR(10) DEFAULT 'PENDING' NOT NULL;
+ALTER TABLE FRIENDS ADD CONSTRAINT FRIENDS_STATUS_CHECK CHECK (STATUS IN ('PENDING', 'APPROVE'));
+
+UPDATE FRIENDS f SET STATUS = 'APPROVE' WHERE EXISTS (
+	SELECT 1 FROM FRIENDS r WHERE r.USER_ONE_ID = f.USER_TWO_ID AND r.USER_TWO_ID = f.USER_ONE_ID
+);
+
+-- Confirmed friends of a user are one range of this index, already ordered by friend id
+CREATE INDEX FRIENDS_USER_ONE_STATUS_IDX ON FRIENDS (USER_ONE_ID, STATUS, USER_TWO_ID);
@@ -1,17 +1,35 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchError;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmLeaderboard;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.impl.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.db.LikesCounter;
 import ru.yandex.practicum.filmorate.storage.impl.db.UserDbStorage;
 
 import javax.validation.ConstraintViolation;
@@ -20,17 +38,34 @@ import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
+@AutoConfigureMockMvc
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmControllerTest {
     private final FilmDbStorage filmDbStorage;
     private final UserDbStorage userDbStorage;
+    private final FilmService filmService;
+    private final FilmLeaderboard filmLeaderboard;
+    private final FilmRecommender filmRecommender;
+    private final FilmSearchIndex filmSearchIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MockMvc mockMvc;
+    private final MeterRegistry meterRegistry;
     private static final Validator VALIDATOR;
 
     static {
@@ -40,7 +75,7 @@ class FilmControllerTest {
 
     @Test
     public void testValidations() {
-        Film film1 = Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
         filmDbStorage.createFilm(film1);
         int filmId = film1.getId();
         Film invalidFilm = filmDbStorage.getFilmById(filmId);
@@ -51,10 +86,23 @@ class FilmControllerTest {
         validates.stream().map(v -> v.getMessage()).forEach(System.out::println);
     }
 
+    @Test
+    public void shouldNotUpdateFilmWithoutRating() throws Exception {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        filmDbStorage.createFilm(film1);
+
+        mockMvc.perform(put("/films")
+                        .contentType("application/json")
+                        .content("{\"id\": " + film1.getId() + ", \"name\": \"Titanic\", \"releaseDate\": \"1997-11-01\", \"duration\": 194}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Film rating can't be empty"));
+        assertEquals(3, filmDbStorage.getFilmById(film1.getId()).getMpa().getId());
+    }
+
     @Test
     public void shouldGetAllFilms() {
-        Film film1 = Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build();
-        Film film2 = Film.builder().name("Avatar").description("This is the new world").releaseDate(LocalDate.of(2009, 12, 17)).duration(162).mpa(Rating.builder().id(3).build()).build();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
 
         filmDbStorage.createFilm(film1);
         filmDbStorage.createFilm(film2);
@@ -68,9 +116,60 @@ class FilmControllerTest {
         assertEquals(expected, actual, "Not all films were added to storage.");
     }
 
+    @Test
+    public void shouldPageFilmsByCursor() {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        filmDbStorage.createFilm(film1);
+        filmDbStorage.createFilm(film2);
+
+        assertEquals(List.of(filmDbStorage.getFilmById(film2.getId())), filmDbStorage.getFilms(film1.getId(), 10));
+        CursorPage<Film> firstPage = filmService.getFilms(0, 1);
+        assertEquals(List.of(filmDbStorage.getFilmById(film1.getId())), firstPage.getItems());
+        assertEquals(film1.getId(), firstPage.getNext());
+        assertNull(filmService.getFilms(firstPage.getNext(), 1).getNext());
+    }
+
+    @Test
+    public void shouldGetAllFilmsWithGenresAndRating() {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3, 2, 5);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+
+        filmDbStorage.createFilm(film1);
+        filmDbStorage.createFilm(film2);
+
+        List<Film> actual = filmDbStorage.getFilms();
+        assertEquals(2, actual.size());
+        assertEquals(List.of(Genre.builder().id(2).name("Драма").build(), Genre.builder().id(5).name("Документальный").build()), actual.get(0).getGenres());
+        assertEquals(Rating.builder().id(3).name("PG-13").build(), actual.get(0).getMpa());
+        assertEquals(new ArrayList<>(), actual.get(1).getGenres());
+    }
+
+    @Test
+    public void shouldStreamAllFilms() throws Exception {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3, 2, 5);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        filmDbStorage.createFilm(film1);
+        filmDbStorage.createFilm(film2);
+
+        List<Film> streamed = new ArrayList<>();
+        filmDbStorage.forEachFilm(streamed::add);
+        assertEquals(filmDbStorage.getFilms(), streamed);
+
+        MvcResult result = mockMvc.perform(get("/films").accept("application/x-ndjson")).andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Titanic\""));
+        assertTrue(lines[1].contains("\"name\":\"Avatar\""));
+        assertEquals("application/json", mockMvc.perform(get("/films").accept("*/*")).andReturn().getResponse().getContentType());
+    }
+
     @Test
     public void shouldUpdateFilmNormal() {
-        Film film1 = Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
         filmDbStorage.createFilm(film1);
         int filmId = film1.getId();
         Film originalFilm = filmDbStorage.getFilmById(filmId);
@@ -93,8 +192,8 @@ class FilmControllerTest {
 
     @Test
     public void shouldAddLikeFromUserWithCorrectId() {
-        Film film1 = Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build();
-        Film film2 = Film.builder().name("Avatar").description("This is the new world").releaseDate(LocalDate.of(2009, 12, 17)).duration(162).mpa(Rating.builder().id(3).build()).build();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
 
         filmDbStorage.createFilm(film1);
         filmDbStorage.createFilm(film2);
@@ -138,6 +237,181 @@ class FilmControllerTest {
         assertEquals(expectedPopularFilms, filmDbStorage.getPopularFilms(count));
     }
 
+    @Test
+    public void shouldGetPopularFilmsPage() {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        Film film3 = film("Fight Club", "Intrigue. Chaos. Soap", LocalDate.of(1999, 9, 11), 139, 4);
+
+        filmDbStorage.createFilm(film1);
+        filmDbStorage.createFilm(film2);
+        filmDbStorage.createFilm(film3);
+
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        userDbStorage.createUser(user1);
+        userDbStorage.createUser(user2);
+
+        filmDbStorage.addLike(film2.getId(), user1.getId());
+        filmDbStorage.addLike(film2.getId(), user2.getId());
+        filmDbStorage.addLike(film3.getId(), user1.getId());
+
+        assertEquals(List.of(filmDbStorage.getFilmById(film2.getId())), filmDbStorage.getPopularFilms(1, 0));
+        assertEquals(List.of(filmDbStorage.getFilmById(film3.getId()), filmDbStorage.getFilmById(film1.getId())), filmDbStorage.getPopularFilms(10, 1));
+        assertTrue(filmDbStorage.getPopularFilms(10, 3).isEmpty());
+    }
+
+    @Test
+    public void shouldNotGetPopularFilmsPastMaxOffset() {
+        assertTrue(filmService.getPopularFilms(10, 10_000).isEmpty());
+        assertThrows(ValidationException.class, () -> filmService.getPopularFilms(10, 10_001));
+    }
+
+    @Test
+    public void shouldGetPopularFilmsFromLeaderboard() {
+        filmLeaderboard.rebuild();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        filmService.createFilm(film1);
+        filmService.createFilm(film2);
+
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        userDbStorage.createUser(user1);
+
+        filmService.addLike(film2.getId(), user1.getId());
+        assertEquals(List.of(film2.getId(), film1.getId()), filmLeaderboard.getTop(10, 0));
+        assertEquals(filmDbStorage.getPopularFilms(10), filmService.getPopularFilms(10, 0));
+
+        filmService.deleteLike(film2.getId(), user1.getId());
+        assertEquals(List.of(film1.getId(), film2.getId()), filmLeaderboard.getTop(10, 0));
+
+        filmLeaderboard.rebuild();
+        assertEquals(2, filmLeaderboard.getSize());
+        assertEquals(2, meterRegistry.get("filmorate.leaderboard.size").gauge().value());
+        assertNotNull(meterRegistry.find("filmorate.leaderboard.rebuild").timeGauge());
+        assertEquals(filmDbStorage.getPopularFilms(10), filmService.getPopularFilms(10, 0));
+    }
+
+    @Test
+    public void shouldRecommendFilmsLikedBySimilarUsers() {
+        filmRecommender.rebuild();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        Film film2 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        Film film3 = film("Fight Club", "Intrigue. Chaos. Soap", LocalDate.of(1999, 9, 11), 139, 4);
+        Film film4 = film("Aliens", "This time it's war", LocalDate.of(1986, 7, 18), 137, 4);
+        List.of(film1, film2, film3, film4).forEach(filmService::createFilm);
+
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        User user3 = User.builder().name("Clark").login("clarklogin").email("clark@email.com").birthday(LocalDate.of(1997, 4, 6)).build();
+        List.of(user1, user2, user3).forEach(userDbStorage::createUser);
+
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.addLike(film2.getId(), user1.getId());
+        filmService.addLike(film1.getId(), user2.getId());
+        filmService.addLike(film2.getId(), user2.getId());
+        filmService.addLike(film3.getId(), user2.getId());
+        filmService.addLike(film1.getId(), user3.getId());
+        filmService.addLike(film4.getId(), user3.getId());
+
+        assertEquals(List.of(film3.getId(), film4.getId()),
+                filmService.getRecommendations(user1.getId(), 10).stream().map(Film::getId).collect(Collectors.toList()));
+
+        filmService.deleteLike(film3.getId(), user2.getId());
+        assertEquals(List.of(film4.getId()), filmRecommender.recommend(user1.getId(), 10));
+
+        filmRecommender.rebuild();
+        assertEquals(List.of(film4.getId()), filmRecommender.recommend(user1.getId(), 10));
+        assertThrows(UserNotFoundException.class, () -> filmService.getRecommendations(999, 10));
+    }
+
+    @Test
+    public void shouldSearchFilmsByTitleAndDescription() {
+        filmSearchIndex.rebuild();
+        Film film1 = film("Ёлки", "Новогодняя комедия", LocalDate.of(2010, 12, 16), 90, 1);
+        Film film2 = film("Ирония судьбы", "Новогодняя история, елки и баня", LocalDate.of(1976, 1, 1), 184, 1);
+        Film film3 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        List.of(film1, film2, film3).forEach(filmService::createFilm);
+
+        assertEquals(List.of(film1.getId(), film2.getId()), searchFilmIds("елки", List.of("title", "description")));
+        assertEquals(List.of(film2.getId()), searchFilmIds("ЕЛК", List.of("description")));
+        assertEquals(List.of(film2.getId()), searchFilmIds("новогодняя баня", List.of("title", "description")));
+        assertEquals(List.of(), searchFilmIds("avatar", List.of("description")));
+
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        userDbStorage.createUser(user1);
+        filmService.addLike(film2.getId(), user1.getId());
+        assertEquals(List.of(film2.getId(), film1.getId()), searchFilmIds("новогодняя", List.of("description")));
+
+        filmService.updateFilm(film3.toBuilder().name("Аватар").build());
+        assertEquals(List.of(film3.getId()), filmSearchIndex.search("аватар", Set.of(FilmSearchIndex.Field.TITLE), 10));
+        assertEquals(List.of(), filmSearchIndex.search("avatar", Set.of(FilmSearchIndex.Field.TITLE), 10));
+        assertThrows(ValidationException.class, () -> filmService.searchFilms("avatar", List.of("genre"), 10));
+    }
+
+    @Test
+    public void shouldIgnoreRepeatedLikes() throws Exception {
+        filmLeaderboard.rebuild();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        filmService.createFilm(film1);
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        userDbStorage.createUser(user1);
+        String likePath = "/films/" + film1.getId() + "/like/" + user1.getId();
+
+        mockMvc.perform(put(likePath)).andExpect(status().isOk());
+        mockMvc.perform(put(likePath)).andExpect(status().isNoContent());
+        assertEquals(1, filmDbStorage.getLikesCounts().get(film1.getId()));
+        assertEquals(1, filmLeaderboard.getLikes(film1.getId()));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM LIKES WHERE FILM_ID = ?", Integer.class, film1.getId()));
+
+        mockMvc.perform(delete(likePath)).andExpect(status().isOk());
+        mockMvc.perform(delete(likePath)).andExpect(status().isNoContent());
+        assertEquals(0, filmDbStorage.getLikesCounts().get(film1.getId()));
+        assertEquals(0, filmLeaderboard.getLikes(film1.getId()));
+    }
+
+    @Test
+    public void shouldFlushBufferedLikesCount() {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        filmDbStorage.createFilm(film1);
+        int filmId = film1.getId();
+
+        LikesCounter bufferedCounter = new LikesCounter(jdbcTemplate, transactionTemplate, true);
+        bufferedCounter.add(filmId, 1);
+        bufferedCounter.add(filmId, 1);
+        bufferedCounter.add(filmId, -1);
+        assertEquals(0, filmDbStorage.getLikesCounts().get(filmId));
+
+        bufferedCounter.flush();
+        assertEquals(1, filmDbStorage.getLikesCounts().get(filmId));
+    }
+
+    @Test
+    public void shouldKeepBufferedLikesWhenFlushFails() {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        filmDbStorage.createFilm(film1);
+        int filmId = film1.getId();
+
+        boolean[] failing = {true};
+        JdbcTemplate failingOnce = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (failing[0]) {
+                    failing[0] = false;
+                    throw new QueryTimeoutException("Flush timed out");
+                }
+                return super.batchUpdate(sql, batchArgs);
+            }
+        };
+        LikesCounter bufferedCounter = new LikesCounter(failingOnce, transactionTemplate, true);
+        bufferedCounter.add(filmId, 1);
+        assertThrows(QueryTimeoutException.class, bufferedCounter::flush);
+
+        bufferedCounter.add(filmId, 1);
+        bufferedCounter.flush();
+        assertEquals(2, filmDbStorage.getLikesCounts().get(filmId));
+    }
+
     @Test
     public void shouldNotGetFilmWhenIdIsIncorrect() {
         int filmId = 999;
@@ -149,7 +423,7 @@ class FilmControllerTest {
 
     @Test
     public void shouldNotAddLikeWhenUserIdIsIncorrect() {
-        Film film1 = Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build();
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
         filmDbStorage.createFilm(film1);
         int filmId1 = film1.getId();
         int userId = 999;
@@ -172,8 +446,74 @@ class FilmControllerTest {
         assertEquals(expectedMessage, actualMessage);
     }
 
+    @Test
+    public void shouldCreateFilmsInBatchAndReportInvalidOnes() {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3, 2, 2, 5);
+        Film film2 = film("", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+        Film film3 = film("Fight Club", "Intrigue. Chaos. Soap", LocalDate.of(1999, 9, 11), 139, 99);
+        Film film4 = film("Avatar", "This is the new world", LocalDate.of(2009, 12, 17), 162, 3);
+
+        BatchResult<Film> result = filmService.createFilms(List.of(film1, film2, film3, film4));
+
+        assertEquals(2, result.getItems().size());
+        assertEquals(List.of(1, 2), result.getErrors().stream().map(BatchError::getIndex).collect(Collectors.toList()));
+        assertEquals("Film name can't be empty", result.getErrors().get(0).getMessage());
+        assertEquals(List.of(Genre.builder().id(2).name("Драма").build(), Genre.builder().id(5).name("Документальный").build()),
+                filmDbStorage.getFilmById(film1.getId()).getGenres());
+        assertEquals("Avatar", filmDbStorage.getFilmById(film4.getId()).getName());
+        assertEquals(2, filmDbStorage.getFilms().size());
+    }
+
+    @Test
+    public void shouldNotDeleteLikeWhenFilmIdIsIncorrect() {
+        int filmId = 999;
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        userDbStorage.createUser(user1);
+        int userId1 = user1.getId();
+
+        FilmNotFoundException exception = assertThrows(FilmNotFoundException.class, () -> filmDbStorage.deleteLike(filmId, userId1));
+        assertEquals("Film with id " + filmId + " doesn't exist", exception.getMessage());
+    }
+
+    @Test
+    public void shouldTimeEndpointsAndNamedQueries() throws Exception {
+        Film film1 = film("Titanic", "Nothing on Earth can separate them", LocalDate.of(1997, 11, 1), 194, 3);
+        filmService.createFilm(film1);
+        mockMvc.perform(get("/films/popular")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", film1.getId())).andExpect(status().isOk());
+
+        Timer addFilm = meterRegistry.find("filmorate.sql").tag("query", "ADD_FILM").timer();
+        assertNotNull(addFilm);
+        assertTrue(addFilm.count() > 0);
+        assertNotNull(meterRegistry.find("filmorate.sql").tag("query", "GET_POPULAR_FILMS").timer());
+        assertNotNull(meterRegistry.find("filmorate.sql").tag("query", "GET_GENRES_FOR_FILMS").timer());
+        assertNotNull(meterRegistry.find("http.server.requests").tag("uri", "/films/popular").timer());
+        assertNotNull(meterRegistry.find("http.server.requests").tag("uri", "/films/{id}").timer());
+
+        mockMvc.perform(get("/actuator/metrics/filmorate.sql").param("tag", "query:ADD_FILM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[?(@.statistic == 'MAX')]").exists());
+    }
+
     @AfterEach
     public void clearDb() {
         filmDbStorage.clearDb();
     }
-}
\ No newline at end of file
+
+    private static Film film(String name, String description, LocalDate releaseDate, int duration, int mpaId, int... genreIds) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .mpa(Rating.builder().id(mpaId).build())
+                .genres(genreIds.length == 0 ? null : Arrays.stream(genreIds)
+                        .mapToObj(id -> Genre.builder().id(id).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private List<Integer> searchFilmIds(String query, List<String> by) {
+        return filmService.searchFilms(query, by, 10).stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
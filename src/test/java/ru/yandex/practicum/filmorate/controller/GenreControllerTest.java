@@ -6,8 +6,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.GenresStorage;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -20,6 +22,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class GenreControllerTest {
     private final GenreController genreController;
+    private final GenresStorage genresStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     public void shouldGetAllGenres() {
@@ -53,4 +57,18 @@ class GenreControllerTest {
         String actualMessage = exception.getMessage();
         assertEquals(expectedMessage, actualMessage);
     }
+
+    @Test
+    public void shouldServeNewGenreOnlyAfterRefresh() {
+        jdbcTemplate.update("INSERT INTO GENRES (GENRE_ID, GENRE_NAME) VALUES (7, 'Ужасы')");
+        try {
+            assertThrows(GenreNotFoundException.class, () -> genreController.getGenreById(7));
+            genresStorage.refresh();
+            assertEquals(Genre.builder().id(7).name("Ужасы").build(), genreController.getGenreById(7));
+        } finally {
+            jdbcTemplate.update("DELETE FROM GENRES WHERE GENRE_ID = 7");
+            genresStorage.refresh();
+        }
+        assertEquals(6, genreController.getGenres().size());
+    }
 }
\ No newline at end of file
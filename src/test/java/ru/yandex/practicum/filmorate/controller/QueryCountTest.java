@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.service.FilmLeaderboard;
+import ru.yandex.practicum.filmorate.storage.impl.db.UserDbStorage;
+import ru.yandex.practicum.filmorate.support.QueryCounter;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Upper bounds on SQL statements per request. The bounds don't depend on the amount of data,
+ * so a query per film or per user (N+1) breaks them as soon as the dataset grows.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Import(QueryCounter.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryCountTest {
+    private final DataSource dataSource;
+    private final QueryCounter queryCounter;
+    private final FilmLeaderboard filmLeaderboard;
+    private final UserDbStorage userDbStorage;
+    private final MockMvc mockMvc;
+
+    // Every size starts from an empty database, so the bounds are checked against exactly that dataset
+    @BeforeEach
+    public void clearDb() {
+        userDbStorage.clearDb();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1_000, 5_000})
+    public void shouldKeepQueriesPerRequestIndependentOfDataSize(int users) throws Exception {
+        DatasetGenerator.Summary dataset = new DatasetGenerator(dataSource, DatasetGenerator.Settings.builder()
+                .users(users)
+                .films(users / 10)
+                .likesPerUser(10)
+                .friendsPerUser(10)
+                .batchSize(1_000)
+                .build()).generate();
+        assertEquals(users, userDbStorage.getUsers().size());
+        filmLeaderboard.rebuild();
+        int filmId = dataset.getFilmIds()[0];
+        int userId = dataset.getUserIds()[0];
+        int otherId = dataset.getUserIds()[1];
+
+        // Films and their genres
+        assertMaxQueries(2, get("/films"));
+        // Top ids come from the in-memory leaderboard, ratings and genres from the cached reference data
+        assertMaxQueries(2, get("/films/popular?count=50"));
+        assertMaxQueries(2, get("/films/{id}", filmId));
+        assertMaxQueries(1, get("/users/{id}/friends/common/{otherId}", userId, otherId));
+    }
+
+    private void assertMaxQueries(long max, RequestBuilder request) throws Exception {
+        queryCounter.reset();
+        String uri = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getRequest().getRequestURI();
+        long queries = queryCounter.getCount();
+        assertTrue(queries <= max, uri + ": expected at most " + max + " queries, got " + queries);
+    }
+}
@@ -7,7 +7,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchError;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.FriendshipImportResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.impl.db.UserDbStorage;
 
 import javax.validation.ConstraintViolation;
@@ -18,6 +23,11 @@ import java.time.LocalDate;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,6 +36,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class UserControllerTest {
     private final UserDbStorage userDbStorage;
+    private final UserService userService;
     private static final Validator VALIDATOR;
 
     static {
@@ -57,6 +68,10 @@ class UserControllerTest {
         List<User> actual = userDbStorage.getUsers();
         assertEquals(2, actual.size(), "Not all users were added to storage.");
 
+        List<User> streamed = new LinkedList<>();
+        userDbStorage.forEachUser(streamed::add);
+        assertEquals(actual, streamed);
+
     }
 
     @Test
@@ -97,6 +112,159 @@ class UserControllerTest {
 
         assertEquals(expectedUser1FriendList, actualUser1FriendsList);
         assertEquals(expectedCommonFriends.size(), actualCommonFriends.size());
+
+        userDbStorage.addFriend(userId1, friendId1);
+        CursorPage<User> commonFriendsPage = userService.getCommonFriends(userId1, userId2, 0, 1);
+        assertEquals(List.of(userDbStorage.getUserById(friendId2)), commonFriendsPage.getItems());
+        CursorPage<User> lastCommonFriendsPage = userService.getCommonFriends(userId1, userId2, commonFriendsPage.getNext(), 1);
+        assertEquals(List.of(userDbStorage.getUserById(friendId3)), lastCommonFriendsPage.getItems());
+        // A full last page has no cursor to an empty one
+        assertNull(lastCommonFriendsPage.getNext());
+    }
+
+    @Test
+    public void shouldIgnoreRepeatedFriendRequests() {
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        userDbStorage.createUser(user1);
+        userDbStorage.createUser(user2);
+
+        assertTrue(userService.addFriend(user1.getId(), user2.getId()));
+        assertFalse(userService.addFriend(user1.getId(), user2.getId()));
+        assertEquals(List.of(user2), userService.getUserFriends(user1.getId()));
+
+        assertTrue(userService.deleteFriend(user1.getId(), user2.getId()));
+        assertFalse(userService.deleteFriend(user1.getId(), user2.getId()));
+        assertEquals(List.of(), userService.getUserFriends(user1.getId()));
+    }
+
+    @Test
+    public void shouldConfirmFriendshipWhenRequestIsReturned() {
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        User user3 = User.builder().name("Clark").login("clarklogin").email("clark@email.com").birthday(LocalDate.of(1997, 4, 6)).build();
+        List.of(user1, user2, user3).forEach(userDbStorage::createUser);
+
+        userService.addFriend(user1.getId(), user2.getId());
+        userService.addFriend(user1.getId(), user3.getId());
+        assertEquals(List.of(user2, user3), userService.getUserFriends(user1.getId()));
+        assertEquals(List.of(), userService.getConfirmedFriends(user1.getId()));
+
+        userService.addFriend(user2.getId(), user1.getId());
+        assertEquals(List.of(user2), userService.getConfirmedFriends(user1.getId()));
+        assertEquals(List.of(user1), userService.getConfirmedFriends(user2.getId()));
+
+        userService.deleteFriend(user2.getId(), user1.getId());
+        assertEquals(List.of(), userService.getConfirmedFriends(user1.getId()));
+        assertEquals(List.of(user2, user3), userService.getUserFriends(user1.getId()));
+
+        userService.importFriends(List.of(Friendship.builder().userId(user3.getId()).friendId(user1.getId()).build()));
+        assertEquals(List.of(user3), userService.getConfirmedFriends(user1.getId()));
+        assertThrows(UserNotFoundException.class, () -> userService.getConfirmedFriends(999));
+    }
+
+    @Test
+    public void shouldConfirmCrossingFriendRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 20; i++) {
+                User user1 = User.builder().name("Mark").login("mark" + i).email("mark" + i + "@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+                User user2 = User.builder().name("Ben").login("ben" + i).email("ben" + i + "@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+                List.of(user1, user2).forEach(userDbStorage::createUser);
+
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> request = executor.submit(() -> {
+                    start.await();
+                    return userService.addFriend(user1.getId(), user2.getId());
+                });
+                Future<?> response = executor.submit(() -> {
+                    start.await();
+                    return userService.addFriend(user2.getId(), user1.getId());
+                });
+                start.countDown();
+                request.get();
+                response.get();
+
+                assertEquals(List.of(user2), userService.getConfirmedFriends(user1.getId()));
+                assertEquals(List.of(user1), userService.getConfirmedFriends(user2.getId()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldImportFriendsInBatchAndReportInvalidOnes() {
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        User user3 = User.builder().name("Clark").login("clarklogin").email("clark@email.com").birthday(LocalDate.of(1997, 4, 6)).build();
+        List.of(user1, user2, user3).forEach(userDbStorage::createUser);
+        userDbStorage.addFriend(user1.getId(), user3.getId());
+
+        FriendshipImportResult result = userService.importFriends(List.of(
+                Friendship.builder().userId(user1.getId()).friendId(user2.getId()).build(),
+                Friendship.builder().userId(user1.getId()).friendId(user2.getId()).build(),
+                Friendship.builder().userId(user1.getId()).friendId(user3.getId()).build(),
+                Friendship.builder().userId(user2.getId()).friendId(999).build(),
+                Friendship.builder().userId(user3.getId()).friendId(user3.getId()).build(),
+                Friendship.builder().userId(user3.getId()).friendId(user2.getId()).build()));
+
+        assertEquals(6, result.getReceived());
+        assertEquals(2, result.getAdded());
+        assertEquals(2, result.getSkipped());
+        assertEquals(List.of(3, 4), result.getErrors().stream().map(BatchError::getIndex).collect(Collectors.toList()));
+        assertEquals(List.of(user2, user3), userService.getUserFriends(user1.getId()));
+        assertEquals(List.of(user2), userService.getUserFriends(user3.getId()));
+    }
+
+    @Test
+    public void shouldSuggestFriendsByMutualFriends() {
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        User user3 = User.builder().name("Clark").login("clarklogin").email("clark@email.com").birthday(LocalDate.of(1997, 4, 6)).build();
+        User user4 = User.builder().name("Lois").login("loislogin").email("lois@email.com").birthday(LocalDate.of(1999, 6, 8)).build();
+        User user5 = User.builder().name("Bruce").login("brucelogin").email("bruce@email.com").birthday(LocalDate.of(2001, 8, 12)).build();
+        List.of(user1, user2, user3, user4, user5).forEach(userDbStorage::createUser);
+
+        userDbStorage.addFriend(user1.getId(), user2.getId());
+        userDbStorage.addFriend(user1.getId(), user3.getId());
+        userDbStorage.addFriend(user2.getId(), user4.getId());
+        userDbStorage.addFriend(user2.getId(), user5.getId());
+        userDbStorage.addFriend(user2.getId(), user3.getId());
+        userDbStorage.addFriend(user3.getId(), user5.getId());
+        userDbStorage.addFriend(user3.getId(), user1.getId());
+
+        assertEquals(List.of(user5, user4), userService.getFriendSuggestions(user1.getId(), 10));
+        assertEquals(List.of(user5), userService.getFriendSuggestions(user1.getId(), 1));
+        // With a fan-out of 1 only the confirmed friend user3 is expanded, and only its lowest friend id, user1 itself
+        assertEquals(List.of(), userDbStorage.getFriendSuggestions(user1.getId(), 1, 10));
+        // With 2 both friends are expanded, but user2 contributes only user3 and user4, so user5 loses its second mutual
+        assertEquals(List.of(user4, user5), userDbStorage.getFriendSuggestions(user1.getId(), 2, 10));
+        assertThrows(UserNotFoundException.class, () -> userService.getFriendSuggestions(999, 10));
+    }
+
+    @Test
+    public void shouldPageUsersAndFriendsByCursor() {
+        User user1 = User.builder().name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        User user2 = User.builder().name("Ben").login("benlogin").email("ben@email.com").birthday(LocalDate.of(1995, 2, 4)).build();
+        User user3 = User.builder().name("Clark").login("clarklogin").email("clark@email.com").birthday(LocalDate.of(1997, 4, 6)).build();
+        userDbStorage.createUser(user1);
+        userDbStorage.createUser(user2);
+        userDbStorage.createUser(user3);
+        userDbStorage.addFriend(user1.getId(), user2.getId());
+        userDbStorage.addFriend(user1.getId(), user3.getId());
+
+        CursorPage<User> firstPage = userService.getUsers(0, 2);
+        assertEquals(List.of(user1, user2), firstPage.getItems());
+        assertEquals(user2.getId(), firstPage.getNext());
+
+        CursorPage<User> lastPage = userService.getUsers(firstPage.getNext(), 2);
+        assertEquals(List.of(user3), lastPage.getItems());
+        assertNull(lastPage.getNext());
+
+        CursorPage<User> friendsPage = userService.getUserFriends(user1.getId(), user2.getId(), 10);
+        assertEquals(List.of(user3), friendsPage.getItems());
+        assertNull(friendsPage.getNext());
     }
 
     @Test
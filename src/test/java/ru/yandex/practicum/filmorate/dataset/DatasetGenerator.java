@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.utility.SqlQueries;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a migrated Filmorate database with a synthetic dataset for benchmarks and load tests.
+ * Likes and friend requests per user follow a Pareto distribution, the films and users they point to
+ * a Zipf distribution, so there are a few very active users and a few very popular films like in real data.
+ * Rows go in JDBC batches in primary key order with foreign key checks off and a commit per batch. The same seed always
+ * produces the same dataset.
+ * <p>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.filmorate.dataset.DatasetGenerator
+ * -Dexec.args="url=jdbc:h2:file:./db/filmorate users=1000000 films=100000"
+ */
+@Slf4j
+public class DatasetGenerator {
+    private static final String INSERT_LIKE = "INSERT INTO LIKES (FILM_ID, USER_ID) VALUES (?, ?)";
+    private static final String INSERT_FRIEND = "INSERT INTO FRIENDS (USER_ONE_ID, USER_TWO_ID) VALUES (?, ?)";
+    private static final String RECOUNT_LIKES = "UPDATE FILMS f SET LIKES_COUNT = (SELECT COUNT(*) FROM LIKES l WHERE l.FILM_ID = f.FILM_ID)";
+    private static final String APPROVE_MUTUAL_FRIENDS = "UPDATE FRIENDS f SET STATUS = 'APPROVE' WHERE EXISTS "
+            + "(SELECT 1 FROM FRIENDS r WHERE r.USER_ONE_ID = f.USER_TWO_ID AND r.USER_TWO_ID = f.USER_ONE_ID)";
+    private static final int RATINGS = 5;
+    private static final int GENRES = 6;
+    // Pareto shape of the per-user activity, the mean is kept at the configured value
+    private static final double ACTIVITY_SHAPE = 2.0;
+
+    @Data
+    @Builder
+    public static class Settings {
+        @Builder.Default
+        int users = 100_000;
+
+        @Builder.Default
+        int films = 10_000;
+
+        @Builder.Default
+        int likesPerUser = 20;
+
+        @Builder.Default
+        int friendsPerUser = 20;
+
+        @Builder.Default
+        double zipfExponent = 1.0;
+
+        @Builder.Default
+        long seed = 42;
+
+        @Builder.Default
+        int batchSize = 10_000;
+    }
+
+    @Data
+    @Builder
+    public static class Summary {
+        int[] userIds;
+
+        int[] filmIds;
+
+        long filmGenres;
+
+        long likes;
+
+        long friendships;
+
+        long elapsedMillis;
+    }
+
+    private final DataSource dataSource;
+    private final Settings settings;
+
+    public DatasetGenerator(DataSource dataSource, Settings settings) {
+        this.dataSource = dataSource;
+        this.settings = settings;
+    }
+
+    public Summary generate() throws SQLException {
+        long start = System.nanoTime();
+        Random random = new Random(settings.seed);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            setReferentialIntegrity(connection, false);
+            try {
+                int[] userIds = insertUsers(connection);
+                int[] filmIds = insertFilms(connection, random);
+                long filmGenres = insertFilmGenres(connection, filmIds, random);
+                long likes = insertLinks(connection, INSERT_LIKE, userIds, filmIds, settings.likesPerUser, random, true);
+                long friendships = insertLinks(connection, INSERT_FRIEND, userIds, userIds, settings.friendsPerUser, random, false);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate(RECOUNT_LIKES);
+                    stmt.executeUpdate(APPROVE_MUTUAL_FRIENDS);
+                }
+                connection.commit();
+
+                Summary summary = Summary.builder()
+                        .userIds(userIds)
+                        .filmIds(filmIds)
+                        .filmGenres(filmGenres)
+                        .likes(likes)
+                        .friendships(friendships)
+                        .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                        .build();
+                log.info("Generated {} users, {} films, {} genre links, {} likes, {} friendships in {} ms",
+                        userIds.length, filmIds.length, filmGenres, likes, friendships, summary.elapsedMillis);
+                return summary;
+            } finally {
+                setReferentialIntegrity(connection, true);
+            }
+        }
+    }
+
+    private int[] insertUsers(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SqlQueries.ADD_USER, new String[]{"USER_ID"})) {
+            return insertRows(connection, stmt, settings.users, i -> {
+                stmt.setString(1, "User " + i);
+                stmt.setString(2, "login" + i);
+                stmt.setString(3, "user" + i + "@email.com");
+                stmt.setDate(4, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(i % 20_000)));
+            });
+        }
+    }
+
+    private int[] insertFilms(Connection connection, Random random) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SqlQueries.ADD_FILM, new String[]{"FILM_ID"})) {
+            return insertRows(connection, stmt, settings.films, i -> {
+                stmt.setString(1, "Film " + i);
+                stmt.setString(2, "Description of film " + i);
+                stmt.setDate(3, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000))));
+                stmt.setInt(4, 60 + random.nextInt(120));
+                stmt.setInt(5, 1 + random.nextInt(RATINGS));
+            });
+        }
+    }
+
+    // Rows are added one batch at a time, the generated ids come back in insertion order
+    private int[] insertRows(Connection connection, PreparedStatement stmt, int count, RowSetter setter) throws SQLException {
+        int[] ids = new int[count];
+        int inserted = 0;
+        for (int i = 0; i < count; i++) {
+            setter.set(i);
+            stmt.addBatch();
+            if ((i + 1) % settings.batchSize == 0 || i == count - 1) {
+                stmt.executeBatch();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids[inserted++] = keys.getInt(1);
+                    }
+                }
+                connection.commit();
+            }
+        }
+        return ids;
+    }
+
+    private long insertFilmGenres(Connection connection, int[] filmIds, Random random) throws SQLException {
+        BatchWriter writer = new BatchWriter(connection, SqlQueries.ADD_FILMS_GENRES);
+        for (int filmId : filmIds) {
+            int first = 1 + random.nextInt(GENRES);
+            writer.add(filmId, first);
+            if (random.nextBoolean()) {
+                int second = 1 + random.nextInt(GENRES);
+                if (second != first) writer.add(filmId, second);
+            }
+        }
+        return writer.finish();
+    }
+
+    // Every source gets a Pareto distributed number of distinct targets picked by Zipf rank,
+    // targets are shuffled first so that popularity doesn't follow the id order.
+    // Rows are written as (target, source) for LIKES and as (source, target) for FRIENDS,
+    // sorted by that primary key so that H2 appends to its indexes instead of splitting random pages
+    private long insertLinks(Connection connection, String sql, int[] sourceIds, int[] targetIds, int meanPerSource,
+                             Random random, boolean targetFirst) throws SQLException {
+        if (meanPerSource <= 0 || targetIds.length < 2) return 0;
+        boolean selfLinks = sourceIds != targetIds;
+        int[] targetsByRank = shuffled(targetIds, random);
+        ZipfDistribution zipf = new ZipfDistribution(targetIds.length, settings.zipfExponent);
+        double scale = meanPerSource * (ACTIVITY_SHAPE - 1) / ACTIVITY_SHAPE;
+        long[] links = new long[sourceIds.length * meanPerSource];
+        int size = 0;
+        Set<Integer> targets = new HashSet<>();
+        for (int sourceId : sourceIds) {
+            int count = (int) Math.min(targetIds.length - 1, scale / Math.pow(1 - random.nextDouble(), 1 / ACTIVITY_SHAPE));
+            targets.clear();
+            for (int attempt = 0; targets.size() < count && attempt < count * 3; attempt++) {
+                int targetId = targetsByRank[zipf.sample(random)];
+                if (selfLinks || targetId != sourceId) targets.add(targetId);
+            }
+            if (size + targets.size() > links.length) {
+                links = Arrays.copyOf(links, Math.max(links.length * 2, size + targets.size()));
+            }
+            for (int targetId : targets) {
+                links[size++] = targetFirst ? pack(targetId, sourceId) : pack(sourceId, targetId);
+            }
+        }
+        Arrays.sort(links, 0, size);
+
+        BatchWriter writer = new BatchWriter(connection, sql);
+        for (int i = 0; i < size; i++) {
+            writer.add((int) (links[i] >>> 32), (int) links[i]);
+        }
+        return writer.finish();
+    }
+
+    // Ids are positive, so the packed values sort the same way as the (first, second) pairs
+    private static long pack(int first, int second) {
+        return (long) first << 32 | second;
+    }
+
+    private static int[] shuffled(int[] ids, Random random) {
+        int[] copy = ids.clone();
+        for (int i = copy.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = copy[i];
+            copy[i] = copy[j];
+            copy[j] = tmp;
+        }
+        return copy;
+    }
+
+    private static void setReferentialIntegrity(Connection connection, boolean enabled) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY " + enabled);
+        }
+    }
+
+    private interface RowSetter {
+        void set(int index) throws SQLException;
+    }
+
+    private class BatchWriter {
+        private final Connection connection;
+        private final PreparedStatement stmt;
+        private long rows;
+
+        BatchWriter(Connection connection, String sql) throws SQLException {
+            this.connection = connection;
+            this.stmt = connection.prepareStatement(sql);
+        }
+
+        void add(int first, int second) throws SQLException {
+            stmt.setInt(1, first);
+            stmt.setInt(2, second);
+            stmt.addBatch();
+            if (++rows % settings.batchSize == 0) flush();
+        }
+
+        long finish() throws SQLException {
+            flush();
+            stmt.close();
+            return rows;
+        }
+
+        private void flush() throws SQLException {
+            stmt.executeBatch();
+            connection.commit();
+        }
+    }
+
+    // Arguments are key=value pairs: url, username, password and the Settings fields
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length == 2) options.put(pair[0], pair[1]);
+        }
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                options.getOrDefault("url", "jdbc:h2:file:./db/filmorate"),
+                options.getOrDefault("username", "sa"),
+                options.getOrDefault("password", "password"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        Settings defaults = Settings.builder().build();
+        Settings settings = Settings.builder()
+                .users(Integer.parseInt(options.getOrDefault("users", String.valueOf(defaults.users))))
+                .films(Integer.parseInt(options.getOrDefault("films", String.valueOf(defaults.films))))
+                .likesPerUser(Integer.parseInt(options.getOrDefault("likesPerUser", String.valueOf(defaults.likesPerUser))))
+                .friendsPerUser(Integer.parseInt(options.getOrDefault("friendsPerUser", String.valueOf(defaults.friendsPerUser))))
+                .zipfExponent(Double.parseDouble(options.getOrDefault("zipfExponent", String.valueOf(defaults.zipfExponent))))
+                .seed(Long.parseLong(options.getOrDefault("seed", String.valueOf(defaults.seed))))
+                .batchSize(Integer.parseInt(options.getOrDefault("batchSize", String.valueOf(defaults.batchSize))))
+                .build();
+        new DatasetGenerator(dataSource, settings).generate();
+    }
+}
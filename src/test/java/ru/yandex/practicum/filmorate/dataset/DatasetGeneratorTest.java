@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTest {
+    private static final DatasetGenerator.Settings SETTINGS = DatasetGenerator.Settings.builder()
+            .users(2_000)
+            .films(500)
+            .likesPerUser(10)
+            .friendsPerUser(10)
+            .batchSize(1_000)
+            .build();
+
+    @Test
+    public void shouldGenerateSkewedDatasetReproducibly() throws SQLException {
+        JdbcTemplate first = migratedDatabase();
+        JdbcTemplate second = migratedDatabase();
+
+        DatasetGenerator.Summary summary = new DatasetGenerator(first.getDataSource(), SETTINGS).generate();
+        new DatasetGenerator(second.getDataSource(), SETTINGS).generate();
+
+        assertEquals(2_000, count(first, "SELECT COUNT(*) FROM APP_USERS"));
+        assertEquals(500, count(first, "SELECT COUNT(*) FROM FILMS"));
+        assertEquals(summary.getFilmGenres(), count(first, "SELECT COUNT(*) FROM FILMS_GENRES"));
+        assertEquals(summary.getLikes(), count(first, "SELECT COUNT(*) FROM LIKES"));
+        assertEquals(summary.getLikes(), count(first, "SELECT SUM(LIKES_COUNT) FROM FILMS"));
+        assertEquals(summary.getFriendships(), count(first, "SELECT COUNT(*) FROM FRIENDS"));
+        assertEquals(0, count(first, "SELECT COUNT(*) FROM FRIENDS WHERE USER_ONE_ID = USER_TWO_ID"));
+        assertTrue(count(first, "SELECT COUNT(*) FROM FRIENDS WHERE STATUS = 'APPROVE'") > 0);
+
+        // The top 1% of films get far more than 1% of likes
+        long topLikes = count(first, "SELECT SUM(LIKES_COUNT) FROM (SELECT LIKES_COUNT FROM FILMS ORDER BY LIKES_COUNT DESC LIMIT 5)");
+        assertTrue(topLikes * 10 > summary.getLikes(), "Top films have " + topLikes + " of " + summary.getLikes() + " likes");
+
+        String checksum = "SELECT SUM(CAST(FILM_ID AS BIGINT) * 31 + USER_ID) FROM LIKES";
+        assertEquals(count(first, checksum), count(second, checksum));
+    }
+
+    private static JdbcTemplate migratedDatabase() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return new JdbcTemplate(dataSource);
+    }
+
+    private static long count(JdbcTemplate jdbcTemplate, String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Ranks 0..n-1 where rank k is drawn with probability proportional to 1 / (k + 1)^exponent.
+ * Sampling is a binary search over the precomputed cumulative distribution.
+ */
+class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
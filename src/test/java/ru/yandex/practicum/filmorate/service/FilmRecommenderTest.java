@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.impl.mem.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.mem.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmRecommenderTest {
+    @Test
+    public void shouldCompareOnlyCappedSampleOfCoLikers() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        FilmRecommender filmRecommender = new FilmRecommender(new InMemoryFilmStorage(new InMemoryUserStorage()), 20, 2, registry);
+        // Users 1..5 like film 100, each of users 2..5 also likes a film of its own
+        for (int userId = 1; userId <= 5; userId++) {
+            filmRecommender.addLike(100, userId);
+            if (userId > 1) filmRecommender.addLike(100 + userId, userId);
+        }
+
+        // The sample of film 100 for user 1 is the next two likers, users 2 and 3
+        assertEquals(List.of(102, 103), filmRecommender.recommend(1, 10));
+        // and wraps around for the last one: users 1 and 2
+        assertEquals(List.of(102), filmRecommender.recommend(5, 10));
+        assertNotNull(registry.find("filmorate.recommender.rebuild").timeGauge());
+    }
+
+    @Test
+    public void shouldRecommendWhileLikesChange() throws Exception {
+        FilmRecommender filmRecommender = new FilmRecommender(new InMemoryFilmStorage(new InMemoryUserStorage()), 20, 1000, new SimpleMeterRegistry());
+        for (int userId = 1; userId <= 100; userId++) {
+            filmRecommender.addLike(1, userId);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    filmRecommender.addLike(2 + i % 50, 1 + i % 100);
+                    filmRecommender.deleteLike(2 + (i + 25) % 50, 1 + i % 100);
+                }
+            }));
+            for (int reader = 0; reader < 3; reader++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        filmRecommender.recommend(1 + i % 100, 10).forEach(filmId -> assertTrue(filmId >= 2 && filmId < 52));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
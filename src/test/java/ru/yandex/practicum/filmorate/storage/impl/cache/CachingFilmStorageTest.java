@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage.impl.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.impl.mem.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.impl.mem.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingFilmStorageTest {
+    private InMemoryFilmStorage filmStorage;
+    private CachingFilmStorage cachingFilmStorage;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage(new InMemoryUserStorage());
+        cachingFilmStorage = new CachingFilmStorage(filmStorage, 2);
+    }
+
+    @Test
+    public void shouldCountHitsMissesAndEvictions() {
+        Film film1 = cachingFilmStorage.createFilm(Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build());
+        Film film2 = cachingFilmStorage.createFilm(Film.builder().name("Avatar").description("This is the new world").releaseDate(LocalDate.of(2009, 12, 17)).duration(162).mpa(Rating.builder().id(3).build()).build());
+        Film film3 = cachingFilmStorage.createFilm(Film.builder().name("Fight Club").description("Intrigue. Chaos. Soap").releaseDate(LocalDate.of(1999, 9, 11)).duration(139).mpa(Rating.builder().id(4).build()).build());
+
+        cachingFilmStorage.getFilmById(film1.getId());
+        cachingFilmStorage.getFilmById(film1.getId());
+        assertEquals(1, cachingFilmStorage.getMissCount());
+        assertEquals(1, cachingFilmStorage.getHitCount());
+
+        cachingFilmStorage.getFilmsByIds(List.of(film2.getId(), film3.getId()));
+        assertEquals(3, cachingFilmStorage.getMissCount());
+        assertEquals(1, cachingFilmStorage.getEvictionCount());
+        assertEquals(2, cachingFilmStorage.getSize());
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cachingFilmStorage.bindTo(registry);
+        assertEquals(1, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(3, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.evictions").functionCounter().count());
+        assertEquals(2, registry.get("cache.size").gauge().value());
+    }
+
+    @Test
+    public void shouldInvalidateFilmOnUpdate() {
+        Film film = cachingFilmStorage.createFilm(Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build());
+        Film cached = cachingFilmStorage.getFilmById(film.getId());
+        cached.setDuration(1);
+        assertEquals(194, cachingFilmStorage.getFilmById(film.getId()).getDuration(), "Cache entry was modified through a returned film");
+
+        Film updated = film.toBuilder().duration(201).build();
+        cachingFilmStorage.updateFilm(updated);
+        assertEquals(201, cachingFilmStorage.getFilmById(film.getId()).getDuration());
+    }
+
+    @Test
+    public void shouldNotCacheFilmLoadedBeforeConcurrentUpdate() {
+        // The update lands between the storage read and the cache put of the read-through load
+        InMemoryFilmStorage racingStorage = new InMemoryFilmStorage(new InMemoryUserStorage()) {
+            private boolean raced;
+
+            @Override
+            public Film getFilmById(int filmId) {
+                Film loaded = super.getFilmById(filmId);
+                if (!raced) {
+                    raced = true;
+                    cachingFilmStorage.updateFilm(loaded.toBuilder().duration(201).build());
+                }
+                return loaded;
+            }
+        };
+        cachingFilmStorage = new CachingFilmStorage(racingStorage, 2);
+        Film film = cachingFilmStorage.createFilm(Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build());
+
+        assertEquals(194, cachingFilmStorage.getFilmById(film.getId()).getDuration());
+        assertEquals(201, cachingFilmStorage.getFilmById(film.getId()).getDuration());
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.impl.db;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigrationTest {
+    @Test
+    public void shouldUpgradeDatabaseCreatedBeforeMigrations() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // The schema and reference data as the application created them before Flyway
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("db/legacy/schema.sql"), new ClassPathResource("db/legacy/data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+
+        jdbcTemplate.update("INSERT INTO APP_USERS (USER_NAME, LOGIN, EMAIL, BIRTHDAY) VALUES ('Mark', 'marklogin', 'mark@email.com', '1992-01-02')");
+        jdbcTemplate.update("INSERT INTO APP_USERS (USER_NAME, LOGIN, EMAIL, BIRTHDAY) VALUES ('Ben', 'benlogin', 'ben@email.com', '1995-02-04')");
+        jdbcTemplate.update("INSERT INTO FILMS (FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID) VALUES ('Titanic', 'Nothing on Earth can separate them', '1997-11-01', 194, 3)");
+        jdbcTemplate.update("INSERT INTO LIKES (FILM_ID, USER_ID) VALUES (1, 1), (1, 1)");
+        jdbcTemplate.update("INSERT INTO FRIENDS (USER_ONE_ID, USER_TWO_ID) VALUES (1, 2), (1, 2), (2, 1)");
+        jdbcTemplate.update("INSERT INTO FILMS_GENRES (FILM_ID, GENRE_ID) VALUES (1, 2), (1, 2)");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM LIKES", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FRIENDS", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FRIENDS WHERE STATUS = 'APPROVE'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILMS_GENRES", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILM_ID = 1", Integer.class));
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update("INSERT INTO LIKES (FILM_ID, USER_ID) VALUES (1, 1)"));
+    }
+}
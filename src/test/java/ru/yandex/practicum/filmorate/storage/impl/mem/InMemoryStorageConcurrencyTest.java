@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.storage.impl.mem;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int USERS_PER_THREAD = 250;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    @Test
+    public void shouldKeepIdsUniqueAndFriendshipsSymmetricUnderLoad() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                ids.add(userStorage.createUser(user("user" + thread + "_" + i)).getId());
+            }
+        });
+        int userCount = THREADS * USERS_PER_THREAD;
+        assertEquals(userCount, ids.size());
+        assertEquals(userCount, userStorage.getUsers().size());
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int userId = random.nextInt(userCount) + 1;
+                int friendId = random.nextInt(userCount) + 1;
+                if (userId == friendId) continue;
+                if (random.nextInt(3) == 0) {
+                    userStorage.deleteFriend(userId, friendId);
+                } else {
+                    userStorage.addFriend(userId, friendId);
+                }
+                userStorage.getFriends(userId, 0, 10);
+                userStorage.getCommonFriends(userId, friendId);
+            }
+        });
+
+        for (User user : userStorage.getUsers()) {
+            user.getFriends().forEach(friendId ->
+                    assertTrue(userStorage.getUserById(friendId).getFriends().contains(user.getId()),
+                            "Friendship " + user.getId() + " -> " + friendId + " is one-sided"));
+        }
+    }
+
+    @Test
+    public void shouldNotLoseConcurrentLikes() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(userStorage);
+        Film film = filmStorage.createFilm(Film.builder().name("Titanic").description("Nothing on Earth can separate them").releaseDate(LocalDate.of(1997, 11, 1)).duration(194).mpa(Rating.builder().id(3).build()).build());
+        Film other = filmStorage.createFilm(Film.builder().name("Avatar").description("This is the new world").releaseDate(LocalDate.of(2009, 12, 17)).duration(162).mpa(Rating.builder().id(3).build()).build());
+
+        // Likes go to both films, so the popular films are reordered while they are being sorted
+        runConcurrently(thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                filmStorage.addLike(film.getId(), thread * USERS_PER_THREAD + i + 1);
+                filmStorage.addLike(other.getId(), thread * USERS_PER_THREAD + i + 1);
+                filmStorage.getPopularFilms(10);
+            }
+        });
+
+        assertEquals(THREADS * USERS_PER_THREAD, filmStorage.getLikesCounts().get(film.getId()));
+        assertEquals(THREADS * USERS_PER_THREAD, filmStorage.getLikesCounts().get(other.getId()));
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadNumber);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private User user(String login) {
+        return User.builder().name(login).login(login).email(login + "@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.utility;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSortedSetTest {
+    @Test
+    public void shouldKeepValuesSortedAndUnique() {
+        IntSortedSet set = IntSortedSet.of(5, 1, 9, 5, 3);
+        assertArrayEquals(new int[]{1, 3, 5, 9}, set.toArray());
+        assertFalse(set.add(3));
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertTrue(set.contains(9));
+        assertFalse(set.contains(5));
+        assertEquals("[9]", set.tailStream(3).boxed().collect(Collectors.toList()).toString());
+        assertEquals("[3, 9]", set.tailStream(2).boxed().collect(Collectors.toList()).toString());
+        assertEquals(IntSortedSet.of(9, 3, 1), set);
+    }
+
+    @Test
+    public void shouldSerializeAsJsonArray() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        User user = User.builder().id(1).name("Mark").login("marklogin").email("mark@email.com").birthday(LocalDate.of(1992, 1, 2)).build();
+        user.addFriend(7);
+        user.addFriend(2);
+
+        String json = objectMapper.writeValueAsString(user);
+        assertTrue(json.contains("\"friends\":[2,7]"));
+        assertEquals(IntSortedSet.of(2, 7), objectMapper.readValue("[7,2]", IntSortedSet.class));
+    }
+}